@@ -1,9 +1,39 @@
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
 import distanceMatrix.DistanceMatrix;
+import distanceMatrix.Distances;
+import SA.BatchRunner;
+import SA.Island;
+import SA.IslandCoordinator;
+import SA.MultiStartAnnealing;
+import SA.ParallelTempering;
 import SA.SimulatedAnnealing;
+import SA.SolverService;
 import java.util.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException, InterruptedException {
+        // Non-interactive mode: Main --batch [config.properties] [key=value ...]
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Solver service: Main --serve [config.properties] [key=value ...]
+        if (args.length > 0 && args[0].equals("--serve")) {
+            SolverService.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Island model: Main --islands [config.properties] [key=value ...] runs the coordinator (and the
+        // local islands), Main --island coordinator=host:port [chains=n] joins it from another process
+        if (args.length > 0 && args[0].equals("--islands")) {
+            IslandCoordinator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--island")) {
+            Island.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Scanner in = new Scanner(System.in);
 
         System.out.println("Choose a set of cities to use:");
@@ -11,19 +41,78 @@ public class Main {
         System.out.println("2 - Example E2");
         System.out.println("3 - Example E3");
         System.out.println("4 - All cities");
+        System.out.println("5 - TSPLIB coordinates file (EUC_2D, CEIL_2D, ATT or GEO)");
         System.out.print("Option: ");
         int optMatrix = in.nextInt();
 
-        SimulatedAnnealing sa = new SimulatedAnnealing(getCitiesMatrix(optMatrix));
+        Distances matrix;
+        if (optMatrix == 5) {
+            System.out.println("Enter the path of the TSPLIB file: ");
+            matrix = CoordinateInstance.load(in.next());
+        } else {
+            matrix = getCitiesMatrix(optMatrix);
+        }
+
+        // Ask user whether the 2-opt moves should be restricted to nearest-neighbor candidates
+        System.out.println("\nHow many nearest-neighbor candidates per city should the moves use? (0 = uniform random moves): ");
+        int optCandidates = in.nextInt();
+        CandidateLists candidates = optCandidates > 0 ? CandidateLists.build(matrix, optCandidates) : null;
+
+        // Ask user which move operators to use
+        System.out.println("\nChoose the move operators, as name:weight separated by commas (e.g. 2opt:5,oropt:3,swap:1,or3opt:1):");
+        System.out.println("2opt");
+        System.out.println("oropt");
+        System.out.println("or3opt");
+        System.out.println("swap");
+        System.out.print("Option: ");
+        String optOperators = in.next();
+        System.out.println("Adapt the operator weights to their success during the run? (y/n): ");
+        boolean optAdaptive = in.next().equalsIgnoreCase("y");
+
+        // Ask user how to build the initial tour
+        System.out.println("\nChoose the initial tour:");
+        System.out.println("random");
+        System.out.println("nearest (nearest neighbor)");
+        System.out.println("greedy (greedy edge matching)");
+        System.out.println("spacefill (space-filling curve, TSPLIB coordinates only)");
+        System.out.print("Option: ");
+        String optInitialTour = in.next();
+
+        // Ask user for a seed, so that the run can be repeated exactly
+        System.out.println("\nDo you want to set the random seed? (y/n): ");
+        long seed;
+        if (in.next().equalsIgnoreCase("y")) {
+            System.out.println("Enter the seed: ");
+            seed = in.nextLong();
+        } else {
+            seed = new Random().nextLong();
+        }
+        System.out.println("Seed: " + seed);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        // Ask user whether to use replica exchange instead of a cooling schedule
+        System.out.println("\nDo you want to use parallel tempering (replicas at fixed temperatures) instead of cooling? (y/n): ");
+        String usePT = in.next();
+
+        if (usePT.equalsIgnoreCase("y")) {
+            System.out.println("Enter the number of replicas (at least 2): ");
+            int optReplicas = in.nextInt();
+            ParallelTempering pt = new ParallelTempering(matrix, optReplicas, threads, seed);
+            pt.setCandidateLists(candidates);
+            pt.setMoveOperators(optOperators, optAdaptive);
+            pt.setInitialTour(optInitialTour);
+            pt.run();
+            return;
+        }
 
         // Ask user to choose weather he prefers to set the initial temperature or not
         System.out.println("\nDo you want to set an initial temperature manually? (y/n): ");
         String setT0 = in.next();
 
+        double initialT0 = 0.0; // 0.0 = automatically calculated
         if (setT0.equalsIgnoreCase("y")) {
             System.out.println("Enter the initial temperature (T0): ");
-            double initialT0 = in.nextDouble();
-            sa.setInitialTemperature(initialT0);
+            initialT0 = in.nextDouble();
         }
 
         // Ask user to choose the temperature decay method
@@ -34,7 +123,6 @@ public class Main {
         System.out.println("logarithmic");
         System.out.print("Option: ");
         String optTemperatureDecay = in.next();
-        sa.setTemperatureDecayMethod(optTemperatureDecay);
 
         // Ask user to choose how to vary the number of iterations per temperature
         System.out.println("\nChoose the method for varying the number of iterations per temperature:");
@@ -44,37 +132,57 @@ public class Main {
         System.out.println("constant");
         System.out.print("Option: ");
         String optIterPerTemp = in.next();
-        sa.setIterVariationMethod(optIterPerTemp);
+
+        // Ask user how many independent chains to run in parallel
+        System.out.println("\nHow many independent chains do you want to run in parallel? (1 = single chain)");
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.print("Option: ");
+        int optChains = in.nextInt();
+
+        // Ask user whether to stop once the best tour is close enough to the lower bound
+        System.out.println("\nStop when the best tour is within how many % of the Held-Karp lower bound? (0 = never)");
+        System.out.print("Option: ");
+        double optGap = in.nextDouble();
 
         // Simulated Annealing execution
-        sa.run();
+        if (optChains > 1) {
+            MultiStartAnnealing msa = new MultiStartAnnealing(matrix, optChains, threads, seed);
+            msa.setInitialTemperature(initialT0);
+            msa.setCandidateLists(candidates);
+            msa.setMoveOperators(optOperators, optAdaptive);
+            msa.setInitialTour(optInitialTour);
+            msa.setTargetGap(optGap);
+            msa.setTemperatureDecayMethod(optTemperatureDecay);
+            msa.setIterVariationMethod(optIterPerTemp);
+            msa.run();
+        } else {
+            SimulatedAnnealing sa = new SimulatedAnnealing(matrix, seed);
+            sa.setInitialTemperature(initialT0);
+            sa.setCandidateLists(candidates);
+            sa.setMoveOperators(optOperators, optAdaptive);
+            sa.setInitialTour(optInitialTour);
+            sa.setTargetGap(optGap);
+            sa.setTemperatureDecayMethod(optTemperatureDecay);
+            sa.setIterVariationMethod(optIterPerTemp);
+            if (sa.run() == null) System.out.println("There must be at least 2 cities.");
+        }
     }
 
-    private static DistanceMatrix getCitiesMatrix(int optCities) {
+    private static Distances getCitiesMatrix(int optCities) {
         // Load the distance matrix file
         DistanceMatrix m = new DistanceMatrix("distancias.txt");
 
-        // Example E1
-        ArrayList<String> E1 = new ArrayList<>(Arrays.asList("Atroeira", "Douro", "Pinhal", "Teixoso", "Ulgueira", "Vilar"));
-        DistanceMatrix mE1 = new DistanceMatrix(m, E1);
-
-        // Example E2
-        ArrayList<String> E2 = new ArrayList<>(Arrays.asList("Cerdeira", "Douro", "Gonta", "Infantado", "Lourel", "Nelas", "Oura", "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"));
-        DistanceMatrix mE2 = new DistanceMatrix(m, E2);
-
-        // Example E3
-        ArrayList<String> E3 = new ArrayList<>(Arrays.asList("Belmar", "Cerdeira", "Douro", "Encosta", "Freita", "Gonta", "Horta", "Infantado", "Lourel", "Monte", "Nelas", "Oura", "Pinhal", "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"));
-        DistanceMatrix mE3 = new DistanceMatrix(m, E3);
-
-        // Example E4 -> All Cities
-
+        // The examples are views over the full matrix: only the chosen one is created, and no distance is copied
         switch(optCities) {
             case 1:
-                return mE1;// mE1;
+                // Example E1
+                return m.subset(Arrays.asList("Atroeira", "Douro", "Pinhal", "Teixoso", "Ulgueira", "Vilar"));
             case 2:
-                return mE2; // mE2;
+                // Example E2
+                return m.subset(Arrays.asList("Cerdeira", "Douro", "Gonta", "Infantado", "Lourel", "Nelas", "Oura", "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"));
             case 3:
-                return mE3; // mE3
+                // Example E3
+                return m.subset(Arrays.asList("Belmar", "Cerdeira", "Douro", "Encosta", "Freita", "Gonta", "Horta", "Infantado", "Lourel", "Monte", "Nelas", "Oura", "Pinhal", "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"));
             case 4:
             default:
                 return m; // case 4 = default = all cities = m
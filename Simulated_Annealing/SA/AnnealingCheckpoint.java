@@ -0,0 +1,192 @@
+package SA;
+
+import Solutions.Tour;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/* The complete state of a SimulatedAnnealing run between two temperature steps: parameters,
+ * counters, random generator, operator weights and the current, first, best and worst tours.
+ * Resuming from it with the same instance and candidate lists continues exactly like the
+ * original run would have.
+ *
+ * Binary format (DataOutputStream, big-endian):
+ *   int magic ("SACP"), int version, int cities
+ *   parameters: T0, alpha, minTemp (double), maxIter (int), decay, iter, operators (UTF), adaptive (boolean)
+ *   state: T (double), iterPerTemp, iteration, step, accepted, total, noImprovement (int),
+ *          elapsed milliseconds (long), generator state (4 longs), operator state
+ *   current tour (Tour.write) and cost
+ *   first, best, worst: cost, iteration, temperature and tour (Tour.write)
+ *   last iteration and temperature
+ *   focus of a re-optimization: number of cities (-1 = none) and the cities (int)
+ *   time budget: length and part already spent in nanoseconds (long, 0 = no time budget)
+ *
+ * Files are written to a temporary file first and then renamed, so a crash while writing
+ * leaves the previous checkpoint intact.
+ */
+class AnnealingCheckpoint {
+
+    private static final int MAGIC = 0x53414350; // "SACP"
+    private static final int VERSION = 2; // version 1 has no focus and no time budget
+
+    // A solution of the run and where it was found
+    static class Record {
+        final Tour tour;
+        final int cost;
+        final int iteration;
+        final double temperature;
+
+        Record(Tour tour, int cost, int iteration, double temperature) {
+            this.tour = tour;
+            this.cost = cost;
+            this.iteration = iteration;
+            this.temperature = temperature;
+        }
+    }
+
+    int cities;
+
+    // Parameters
+    double T0;
+    double alpha;
+    double minTemp;
+    int maxIter;
+    String decayMethod;
+    String iterMethod;
+    String operatorSpec;
+    boolean adaptiveOperators;
+
+    // State at the start of the next temperature step
+    double T;
+    int iterPerTemp;
+    int iteration;
+    int step;
+    int acceptedMoves;
+    int totalMoves;
+    int noImprovementCount;
+    long elapsedMillis;
+    long[] rngState;
+    byte[] operatorState;
+
+    Tour current;
+    int currentCost;
+    Record first;
+    Record best;
+    Record worst;
+    int lastIter;
+    double lastTemp;
+
+    // Cities the moves start from (null = all) and time budget of the run (0 = none)
+    int[] focus;
+    long budgetNanos;
+    long budgetSpentNanos;
+
+    // Writes the checkpoint to a file, replacing the previous one atomically
+    void write(String fileName) throws IOException {
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.cities);
+            out.writeDouble(this.T0);
+            out.writeDouble(this.alpha);
+            out.writeDouble(this.minTemp);
+            out.writeInt(this.maxIter);
+            out.writeUTF(this.decayMethod);
+            out.writeUTF(this.iterMethod);
+            out.writeUTF(this.operatorSpec);
+            out.writeBoolean(this.adaptiveOperators);
+            out.writeDouble(this.T);
+            out.writeInt(this.iterPerTemp);
+            out.writeInt(this.iteration);
+            out.writeInt(this.step);
+            out.writeInt(this.acceptedMoves);
+            out.writeInt(this.totalMoves);
+            out.writeInt(this.noImprovementCount);
+            out.writeLong(this.elapsedMillis);
+            for (long v : this.rngState) out.writeLong(v);
+            out.writeInt(this.operatorState.length);
+            out.write(this.operatorState);
+            this.current.write(out);
+            out.writeInt(this.currentCost);
+            for (Record r : new Record[]{this.first, this.best, this.worst}) {
+                out.writeInt(r.cost);
+                out.writeInt(r.iteration);
+                out.writeDouble(r.temperature);
+                r.tour.write(out);
+            }
+            out.writeInt(this.lastIter);
+            out.writeDouble(this.lastTemp);
+            out.writeInt(this.focus == null ? -1 : this.focus.length);
+            if (this.focus != null) {
+                for (int c : this.focus) out.writeInt(c);
+            }
+            out.writeLong(this.budgetNanos);
+            out.writeLong(this.budgetSpentNanos);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Some file systems cannot replace atomically
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Reads a checkpoint written by write()
+    static AnnealingCheckpoint read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException(fileName + ": not an annealing checkpoint");
+            int version = in.readInt();
+            if (version != 1 && version != VERSION) throw new IllegalArgumentException(fileName + ": unsupported version " + version);
+            AnnealingCheckpoint cp = new AnnealingCheckpoint();
+            cp.cities = in.readInt();
+            cp.T0 = in.readDouble();
+            cp.alpha = in.readDouble();
+            cp.minTemp = in.readDouble();
+            cp.maxIter = in.readInt();
+            cp.decayMethod = in.readUTF();
+            cp.iterMethod = in.readUTF();
+            cp.operatorSpec = in.readUTF();
+            cp.adaptiveOperators = in.readBoolean();
+            cp.T = in.readDouble();
+            cp.iterPerTemp = in.readInt();
+            cp.iteration = in.readInt();
+            cp.step = in.readInt();
+            cp.acceptedMoves = in.readInt();
+            cp.totalMoves = in.readInt();
+            cp.noImprovementCount = in.readInt();
+            cp.elapsedMillis = in.readLong();
+            cp.rngState = new long[4];
+            for (int i = 0; i < 4; i++) cp.rngState[i] = in.readLong();
+            cp.operatorState = new byte[in.readInt()];
+            in.readFully(cp.operatorState);
+            cp.current = Tour.read(in);
+            cp.currentCost = in.readInt();
+            Record[] records = new Record[3];
+            for (int k = 0; k < 3; k++) {
+                int cost = in.readInt();
+                int iteration = in.readInt();
+                double temperature = in.readDouble();
+                records[k] = new Record(Tour.read(in), cost, iteration, temperature);
+            }
+            cp.first = records[0];
+            cp.best = records[1];
+            cp.worst = records[2];
+            cp.lastIter = in.readInt();
+            cp.lastTemp = in.readDouble();
+            if (version >= 2) {
+                int focused = in.readInt();
+                if (focused >= 0) {
+                    cp.focus = new int[focused];
+                    for (int i = 0; i < focused; i++) cp.focus[i] = in.readInt();
+                }
+                cp.budgetNanos = in.readLong();
+                cp.budgetSpentNanos = in.readLong();
+            }
+            return cp;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package SA;
+
+import Solutions.Solution;
+
+/* Observer of a SimulatedAnnealing run. All methods are called from the thread running the
+ * annealer, between moves, and have empty defaults so listeners only implement what they need.
+ * The console output of the annealer is one such listener (ConsoleListener).
+ */
+public interface AnnealingListener {
+
+    // Called once the parameters are set, before the first move
+    default void onStart(SimulatedAnnealing annealer, double averageDistance) {
+    }
+
+    // Called at the end of every temperature step (the last one may be cut short by a stop criterion)
+    default void onTemperatureStep(TemperatureStep step) {
+    }
+
+    // Called at the end of every temperature step that found a better solution than the last one
+    // reported (the first step always reports), with a copy of it that listeners may keep but not modify
+    default void onImprovement(Solution best, int iteration, long elapsedNanos) {
+    }
+
+    // Called when a stop criterion ends the run, with the state it was checked on
+    default void onStop(String reason, double temperature, int iteration, int acceptedMoves, int totalMoves,
+                        int noImprovementCount) {
+    }
+
+    // Called after the run with its result and the solutions it went through
+    default void onFinish(AnnealingReport report) {
+    }
+}
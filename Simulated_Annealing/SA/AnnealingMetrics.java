@@ -0,0 +1,104 @@
+package SA;
+
+/* Live counters of a SimulatedAnnealing run that other threads can read while it runs (e.g.
+ * to show progress or export metrics). The run keeps its counters in local variables and
+ * publishes them here at the end of every temperature step, so the moves themselves pay
+ * nothing (even a per-move check measurably slowed the loop down). Values are individually
+ * up to date, not a consistent snapshot of a single moment.
+ */
+public class AnnealingMetrics {
+
+    private volatile boolean running;
+    private volatile double temperature;
+    private volatile int temperatureSteps;
+    private volatile long totalMoves;
+    private volatile long acceptedMoves;
+    private volatile int currentCost;
+    private volatile int bestCost;
+    private volatile long startNanos;
+    private volatile int adoptedTours;
+
+    // Marks the start of a run
+    void start(double temperature, int cost) {
+        this.startNanos = System.nanoTime();
+        this.temperature = temperature;
+        this.temperatureSteps = 0;
+        this.totalMoves = 0;
+        this.acceptedMoves = 0;
+        this.currentCost = cost;
+        this.bestCost = cost;
+        this.adoptedTours = 0;
+        this.running = true;
+    }
+
+    // Publishes the counters of the run
+    void publish(double temperature, int temperatureSteps, long totalMoves, long acceptedMoves, int currentCost, int bestCost) {
+        this.temperature = temperature;
+        this.temperatureSteps = temperatureSteps;
+        this.totalMoves = totalMoves;
+        this.acceptedMoves = acceptedMoves;
+        this.currentCost = currentCost;
+        this.bestCost = bestCost;
+    }
+
+    // Counts a tour offered to the run that it continued from (only the run's thread writes it)
+    void adopted() {
+        this.adoptedTours++;
+    }
+
+    // Marks the end of a run
+    void finish() {
+        this.running = false;
+    }
+
+    // Returns true while a run is in progress
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Returns the current temperature
+    public double getTemperature() {
+        return temperature;
+    }
+
+    // Returns the number of finished temperature steps
+    public int getTemperatureSteps() {
+        return temperatureSteps;
+    }
+
+    // Returns the number of proposed moves
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    // Returns the number of accepted moves
+    public long getAcceptedMoves() {
+        return acceptedMoves;
+    }
+
+    // Returns the cost of the current solution
+    public int getCurrentCost() {
+        return currentCost;
+    }
+
+    // Returns the best cost found so far
+    public int getBestCost() {
+        return bestCost;
+    }
+
+    // Returns the number of offered tours the run continued from (see SimulatedAnnealing.offerSolution)
+    public int getAdoptedTours() {
+        return adoptedTours;
+    }
+
+    // Returns the time since the start of the last run, in nanoseconds
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    // Returns the proposed moves per second since the start of the last run
+    public double getMovesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed == 0 ? 0.0 : totalMoves * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,92 @@
+package SA;
+
+import distanceMatrix.Distances;
+import moves.OperatorSelector;
+import Solutions.Solution;
+
+// Everything a finished SimulatedAnnealing run can report: its result, the first, last, best and
+// worst solutions with the iteration and temperature where they were found, and the operator statistics
+public class AnnealingReport {
+
+    // A solution of the run and where it was found
+    public static class Entry {
+        private final Solution solution;
+        private final int iteration;
+        private final double temperature;
+
+        public Entry(Solution solution, int iteration, double temperature) {
+            this.solution = solution;
+            this.iteration = iteration;
+            this.temperature = temperature;
+        }
+
+        // Returns the solution
+        public Solution getSolution() {
+            return solution;
+        }
+
+        // Returns the iteration where the solution was found
+        public int getIteration() {
+            return iteration;
+        }
+
+        // Returns the temperature where the solution was found
+        public double getTemperature() {
+            return temperature;
+        }
+    }
+
+    private final AnnealingResult result;
+    private final Distances matrix;
+    private final Entry first;
+    private final Entry last;
+    private final Entry best;
+    private final Entry worst;
+    private final OperatorSelector operators;
+
+    public AnnealingReport(AnnealingResult result, Distances matrix, Entry first, Entry last, Entry best, Entry worst,
+                           OperatorSelector operators) {
+        this.result = result;
+        this.matrix = matrix;
+        this.first = first;
+        this.last = last;
+        this.best = best;
+        this.worst = worst;
+        this.operators = operators;
+    }
+
+    // Returns the result of the run
+    public AnnealingResult getResult() {
+        return result;
+    }
+
+    // Returns the distance matrix of the run (for city names)
+    public Distances getMatrix() {
+        return matrix;
+    }
+
+    // Returns the initial solution
+    public Entry getFirst() {
+        return first;
+    }
+
+    // Returns the solution the run ended with
+    public Entry getLast() {
+        return last;
+    }
+
+    // Returns the best solution
+    public Entry getBest() {
+        return best;
+    }
+
+    // Returns the worst solution
+    public Entry getWorst() {
+        return worst;
+    }
+
+    // Returns the move operators of the run, with their statistics
+    public OperatorSelector getOperators() {
+        return operators;
+    }
+}
@@ -0,0 +1,88 @@
+package SA;
+
+import Solutions.Solution;
+
+// Outcome of one Simulated Annealing chain: the best tour found and the statistics of the run
+public class AnnealingResult {
+
+    private final Solution best;
+    private final int iterations;
+    private final int acceptedMoves;
+    private final int totalMoves;
+    private final double finalTemperature;
+    private final long executionTime; // milliseconds
+    private final String stopReason;
+    private final long lowerBound; // 0 = not computed
+
+    public AnnealingResult(Solution best, int iterations, int acceptedMoves, int totalMoves,
+                           double finalTemperature, long executionTime, String stopReason) {
+        this(best, iterations, acceptedMoves, totalMoves, finalTemperature, executionTime, stopReason, 0);
+    }
+
+    public AnnealingResult(Solution best, int iterations, int acceptedMoves, int totalMoves,
+                           double finalTemperature, long executionTime, String stopReason, long lowerBound) {
+        this.best = best;
+        this.iterations = iterations;
+        this.acceptedMoves = acceptedMoves;
+        this.totalMoves = totalMoves;
+        this.finalTemperature = finalTemperature;
+        this.executionTime = executionTime;
+        this.stopReason = stopReason;
+        this.lowerBound = lowerBound;
+    }
+
+    // Returns the best solution found
+    public Solution getBest() {
+        return best;
+    }
+
+    // Returns the cost of the best solution found
+    public int getBestCost() {
+        return best.getCost();
+    }
+
+    // Returns the total number of iterations performed
+    public int getIterations() {
+        return iterations;
+    }
+
+    // Returns the number of accepted moves
+    public int getAcceptedMoves() {
+        return acceptedMoves;
+    }
+
+    // Returns the number of proposed moves
+    public int getTotalMoves() {
+        return totalMoves;
+    }
+
+    // Returns the ratio of accepted to proposed moves
+    public double getAcceptanceRate() {
+        return totalMoves == 0 ? 0.0 : (double) acceptedMoves / totalMoves;
+    }
+
+    // Returns the temperature when the run stopped
+    public double getFinalTemperature() {
+        return finalTemperature;
+    }
+
+    // Returns the execution time in milliseconds
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    // Returns a short description of the stop criterion that ended the run
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    // Returns the Held-Karp lower bound of the instance, or 0 if it was not computed (see setTargetGap)
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    // Returns how far the best cost is above the lower bound, in percent (NaN if it was not computed)
+    public double getGap() {
+        return lowerBound <= 0 ? Double.NaN : 100.0 * (getBestCost() - lowerBound) / lowerBound;
+    }
+}
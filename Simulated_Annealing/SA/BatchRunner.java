@@ -0,0 +1,292 @@
+package SA;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import distanceMatrix.HeldKarpBound;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* Non-interactive runner: sweeps a grid of configurations over a list of instances and writes
+ * one CSV or JSON line per run. Every combination of instance, decay method, iteration
+ * variation method, initial tour, initial temperature and seed is one single-chain run; runs execute
+ * concurrently on a fixed thread pool. Each instance (and its candidate lists) is loaded once
+ * and shared by all of its runs, since annealers only read it (see InstanceCache).
+ *
+ * The configuration is a properties file and/or key=value arguments (arguments win):
+ *
+ *   instances  = E1, E2, distancias.txt:ADPTUV, cities.tsp   (required)
+ *   matrix     = distancias.txt      matrix file of the examples E1, E2 and E3
+ *   decay      = geometric, linear   temperature decay methods
+ *   iter       = constant, random    iteration variation methods
+ *   start      = random, greedy      initial tours (see SimulatedAnnealing.setInitialTour)
+ *   t0         = 0, 5000             initial temperatures (0 = automatic)
+ *   iterations = 0                   iteration budget of each run (0 = automatic)
+ *   time       = 0                   time budget of each run in milliseconds (0 = none, see solve)
+ *   gap        = 0                   stop within this % of the Held-Karp lower bound (0 = never)
+ *   seeds      = 1-10                seeds, as a list and/or ranges
+ *   candidates = 0                   nearest-neighbor candidates per city (0 = none)
+ *   operators  = 2opt                move operators (see SimulatedAnnealing.setMoveOperators)
+ *   adaptive   = false               adaptive operator weights
+ *   threads    = <processors>        size of the thread pool
+ *   format     = csv                 csv or json (one object per line)
+ *   output     = -                   output file (- = standard output)
+ *
+ * An instance is a matrix file (text or binary), a TSPLIB file (.tsp), a matrix file
+ * followed by ":" and the initials of a subset of its cities, or one of E1, E2 and E3.
+ * The settings are checked on every instance before the first run; a run that fails anyway
+ * still gets its line, with "failed: <error>" as its stop reason.
+ */
+public class BatchRunner {
+
+    private static final String[] COLUMNS = {"run", "instance", "cities", "decay", "iter", "start", "t0", "seed",
+            "best_cost", "lower_bound", "iterations", "accepted", "acceptance_rate", "wall_ms", "stop_reason"};
+
+    private final Properties config;
+
+    // Loaded instances and their candidate lists, by instance specification
+    private final InstanceCache cache;
+    private final Map<String, Distances> instances;
+    private final Map<String, CandidateLists> candidates;
+
+    public BatchRunner(Properties config) {
+        this.config = config;
+        this.cache = new InstanceCache(config.getProperty("matrix", "distancias.txt").trim());
+        this.instances = new LinkedHashMap<>();
+        this.candidates = new HashMap<>();
+    }
+
+    // Usage: BatchRunner [config.properties] [key=value ...]
+    public static void main(String[] args) throws IOException {
+        Properties config = parseArguments(args);
+        if (!config.containsKey("instances")) {
+            System.out.println("Usage: BatchRunner [config.properties] [key=value ...]");
+            System.out.println("Keys: instances (required), matrix, decay, iter, start, t0, iterations, time, gap, seeds, candidates,");
+            System.out.println("      operators, adaptive, threads, format (csv/json), output");
+            return;
+        }
+        new BatchRunner(config).run();
+    }
+
+    // Reads the configuration of the arguments: properties files, then key=value pairs that override them
+    static Properties parseArguments(String[] args) throws IOException {
+        Properties config = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                try (Reader in = new InputStreamReader(new FileInputStream(arg), StandardCharsets.UTF_8)) {
+                    config.load(in);
+                }
+            }
+        }
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq >= 0) config.setProperty(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        return config;
+    }
+
+    // A single run of the grid
+    private static class Run {
+        final int id;
+        final String instance;
+        final String decay;
+        final String iter;
+        final String start;
+        final double t0;
+        final long seed;
+
+        Run(int id, String instance, String decay, String iter, String start, double t0, long seed) {
+            this.id = id;
+            this.instance = instance;
+            this.decay = decay;
+            this.iter = iter;
+            this.start = start;
+            this.t0 = t0;
+            this.seed = seed;
+        }
+    }
+
+    // Loads the instances, runs the whole grid and writes the results
+    public void run() throws IOException {
+        List<String> instanceSpecs = list("instances", null);
+        List<String> decays = list("decay", "geometric");
+        List<String> iters = list("iter", "constant");
+        List<String> starts = list("start", "random");
+        List<Double> t0s = new ArrayList<>();
+        for (String t : list("t0", "0")) t0s.add(Double.parseDouble(t));
+        List<Long> seeds = parseSeeds(this.config.getProperty("seeds", "1"));
+        int k = Integer.parseInt(this.config.getProperty("candidates", "0").trim());
+        String operators = this.config.getProperty("operators", "2opt").trim();
+        int budget = Integer.parseInt(this.config.getProperty("iterations", "0").trim());
+        long time = Long.parseLong(this.config.getProperty("time", "0").trim());
+        double gap = Double.parseDouble(this.config.getProperty("gap", "0").trim());
+        boolean adaptive = Boolean.parseBoolean(this.config.getProperty("adaptive", "false").trim());
+        int threads = Integer.parseInt(this.config.getProperty("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())).trim());
+        boolean json = this.config.getProperty("format", "csv").trim().equalsIgnoreCase("json");
+        String output = this.config.getProperty("output", "-").trim();
+        if (threads < 1) throw new IllegalArgumentException("There must be at least 1 thread.");
+
+        // Load every instance once, before any run starts
+        for (String spec : instanceSpecs) {
+            if (this.instances.containsKey(spec)) continue;
+            Distances m = this.cache.get(spec);
+            this.instances.put(spec, m);
+            if (k > 0) this.candidates.put(spec, this.cache.candidates(m, k));
+            if (gap > 0) HeldKarpBound.of(m); // so that the gap criterion applies from the first run on
+        }
+
+        // Check the settings of the grid on every instance before any run starts, so that a sweep
+        // does not leave gaps in its output (a space-filling start on a matrix instance, for instance)
+        for (Map.Entry<String, Distances> e : this.instances.entrySet()) {
+            SimulatedAnnealing sa = new SimulatedAnnealing(e.getValue(), 0);
+            try {
+                sa.setMoveOperators(operators, adaptive);
+                for (String start : starts) sa.setInitialTour(start);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(e.getKey() + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        List<Run> runs = new ArrayList<>();
+        for (String spec : this.instances.keySet()) {
+            for (String decay : decays) {
+                for (String iter : iters) {
+                    for (String start : starts) {
+                        for (double t0 : t0s) {
+                            for (long seed : seeds) runs.add(new Run(runs.size(), spec, decay, iter, start, t0, seed));
+                        }
+                    }
+                }
+            }
+        }
+
+        PrintWriter out = output.equals("-")
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true)
+                : new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)));
+        if (!json) out.println(String.join(",", COLUMNS));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, runs.size())));
+        CompletionService<Object[]> done = new ExecutorCompletionService<>(pool);
+        try {
+            for (Run r : runs) {
+                done.submit(() -> {
+                    try {
+                        return execute(r, operators, adaptive, budget, time, gap);
+                    } catch (RuntimeException e) {
+                        // The run still gets its line, with the error as its stop reason
+                        System.err.println("Run " + r.id + " (" + r.instance + ", " + r.decay + ", " + r.iter + ", "
+                                + r.start + ", t0 " + r.t0 + ", seed " + r.seed + ") failed: " + e);
+                        return row(r, "", "failed: " + e.getMessage());
+                    }
+                });
+            }
+            // Lines are written as runs finish, so a long sweep can be followed (and cut short) safely
+            for (int i = 0; i < runs.size(); i++) {
+                try {
+                    Object[] row = done.take().get();
+                    out.println(json ? toJson(row) : toCsv(row));
+                    out.flush();
+                } catch (ExecutionException e) {
+                    System.err.println("A run failed: " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run interrupted", e);
+        } finally {
+            pool.shutdownNow();
+            if (!output.equals("-")) out.close();
+        }
+    }
+
+    // Performs one run and returns its output row, in the order of COLUMNS
+    private Object[] execute(Run r, String operators, boolean adaptive, int budget, long time, double gap) {
+        Distances m = this.instances.get(r.instance);
+        SimulatedAnnealing sa = new SimulatedAnnealing(m, r.seed);
+        sa.setVerbose(false);
+        sa.setInitialTemperature(r.t0);
+        sa.setMaxIterations(budget);
+        sa.setTemperatureDecayMethod(r.decay);
+        sa.setIterVariationMethod(r.iter);
+        sa.setCandidateLists(this.candidates.get(r.instance));
+        sa.setMoveOperators(operators, adaptive);
+        sa.setInitialTour(r.start);
+        sa.setTargetGap(gap);
+        long start = System.nanoTime();
+        AnnealingResult result = time > 0 ? sa.solve(Duration.ofMillis(time)) : sa.run();
+        long wall = (System.nanoTime() - start) / 1_000_000;
+        if (result == null) return row(r, wall, "too few cities");
+        return new Object[]{r.id, r.instance, m.size(), r.decay, r.iter, r.start, r.t0, r.seed, result.getBestCost(),
+                result.getLowerBound() > 0 ? result.getLowerBound() : "",
+                result.getIterations(), result.getAcceptedMoves(), result.getAcceptanceRate(), wall, result.getStopReason()};
+    }
+
+    // Returns the output row of a run without a result: its configuration and why it has none
+    private Object[] row(Run r, Object wall, String reason) {
+        return new Object[]{r.id, r.instance, this.instances.get(r.instance).size(), r.decay, r.iter, r.start, r.t0, r.seed, "", "", "", "", "", wall, reason};
+    }
+
+    // Returns the comma-separated values of a key, or the default value
+    private List<String> list(String key, String defaultValue) {
+        String value = this.config.getProperty(key, defaultValue);
+        if (value == null) throw new IllegalArgumentException("Missing configuration key: " + key);
+        List<String> values = new ArrayList<>();
+        for (String v : value.split(",")) {
+            if (!v.trim().isEmpty()) values.add(v.trim());
+        }
+        if (values.isEmpty()) throw new IllegalArgumentException("No values for configuration key: " + key);
+        return values;
+    }
+
+    // Parses seeds such as "1,5,7" or "1-10" (ranges are inclusive)
+    static List<Long> parseSeeds(String spec) {
+        List<Long> seeds = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) continue;
+            int dash = part.indexOf('-', 1); // a leading '-' is the sign of a negative seed
+            if (dash > 0) {
+                long from = Long.parseLong(part.substring(0, dash).trim());
+                long to = Long.parseLong(part.substring(dash + 1).trim());
+                for (long s = from; s <= to; s++) seeds.add(s);
+            } else {
+                seeds.add(Long.parseLong(part));
+            }
+        }
+        return seeds;
+    }
+
+    // Formats a row as a CSV line, quoting the text fields that need it
+    private static String toCsv(Object[] row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) sb.append(',');
+            String v = String.valueOf(row[i]);
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0) v = '"' + v.replace("\"", "\"\"") + '"';
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+    // Formats a row as a JSON object on one line
+    private static String toJson(Object[] row) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(COLUMNS[i]).append("\":");
+            Object v = row[i];
+            if (v instanceof Number) {
+                sb.append(v);
+            } else if ("".equals(v)) {
+                sb.append("null");
+            } else {
+                sb.append('"').append(String.valueOf(v).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
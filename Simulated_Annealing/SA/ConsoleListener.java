@@ -0,0 +1,86 @@
+package SA;
+
+import moves.OperatorSelector;
+
+// Prints the progress and the results of a run to the console (the output of SimulatedAnnealing when verbose)
+public class ConsoleListener implements AnnealingListener {
+
+    @Override
+    public void onStart(SimulatedAnnealing sa, double averageDistance) {
+        System.out.println("\n==== Automatically Adjusted Parameters ====");
+        System.out.printf("Cities: %d | Avg. Distance: %.2f%n", sa.getMatrix().size(), averageDistance);
+        System.out.printf("T0 = %.2f | alpha = %.4f | minTemp = %.4f%n",
+                sa.getInitialTemperature(), sa.getAlpha(), sa.getMinTemperature());
+        System.out.printf("Iterations/Temp = %d | Max Iterations = %d%n", sa.getIterationsPerTemperature(), sa.getMaxIterations());
+
+        System.out.println("\n==== Starting Simulated Annealing ====");
+        System.out.printf("Temperature Decay Method: %s%n", sa.getTemperatureDecayMethod());
+        System.out.printf("Iteration Variation Method: %s%n", sa.getIterVariationMethod());
+        System.out.println("------------------------------------------------------------\n");
+        System.out.println("Initial Iterations per Temperature: " + sa.getIterationsPerTemperature());
+    }
+
+    @Override
+    public void onTemperatureStep(TemperatureStep step) {
+        System.out.printf("T = %-12.3f Iterations: %-10d Accepted: %-10d Current Cost: %-10d Best Cost: %d%n",
+                step.getTemperature(), step.getMoves(), step.getAcceptedMoves(), step.getCurrentCost(), step.getBestCost());
+    }
+
+    @Override
+    public void onStop(String reason, double T, int iteration, int acceptedMoves, int totalMoves, int noImprovementCount) {
+        System.out.println("\n===== STOP CRITERION =====");
+        switch (reason) {
+            case "minimum temperature":
+                System.out.printf("Minimum Temperature Reached: %-12.3f%n", T);
+                break;
+            case "maximum iterations":
+                System.out.println("Maximum Iteration Reached: " + iteration);
+                break;
+            case "minimum acceptance rate":
+                System.out.println("Accepted Moves: " + acceptedMoves);
+                System.out.println("Total Moves: " + totalMoves);
+                System.out.printf("Acceptance Rate: %-12.3f%n", (double) acceptedMoves / totalMoves);
+                break;
+            case "no improvement":
+                System.out.println("No Improvement Count: " + noImprovementCount);
+                break;
+            default:
+                System.out.println("Stop Reason: " + reason);
+        }
+    }
+
+    @Override
+    public void onFinish(AnnealingReport report) {
+        System.out.println("\n===== RESULTS =====");
+        System.out.printf("%-18s %-55s %-12s %-12s %-12s%n",
+                "Solution Type:", "Path", "Cost (Km)", "Iteration", "Temperature");
+        System.out.println("----------------------------------------------------------------------------------------------------------------");
+        printEntry(report, "First Solution:", report.getFirst());
+        printEntry(report, "Last Solution:", report.getLast());
+        printEntry(report, "Best Solution:", report.getBest());
+        AnnealingResult result = report.getResult();
+        if (result.getLowerBound() > 0) {
+            System.out.printf("%-18s %-55s %-10d%n", "Lower Bound:",
+                    String.format("Held-Karp (best is %.2f%% above)", result.getGap()), result.getLowerBound());
+        }
+        printEntry(report, "Worst Solution:", report.getWorst());
+
+        System.out.println("\nTotal Iterations: " + result.getIterations());
+        System.out.println("Execution Time: " + result.getExecutionTime() + " ms");
+
+        OperatorSelector operators = report.getOperators();
+        if (operators.size() > 1) {
+            System.out.printf("%n%-12s %-12s %-12s %-12s%n", "Operator", "Proposed", "Accepted", "Weight");
+            for (int i = 0; i < operators.size(); i++) {
+                System.out.printf("%-12s %-12d %-12d %-12.3f%n", operators.get(i).getName(),
+                        operators.getProposed(i), operators.getAccepted(i), operators.getWeight(i));
+            }
+        }
+    }
+
+    // Prints one row of the results table
+    private void printEntry(AnnealingReport report, String label, AnnealingReport.Entry e) {
+        System.out.printf("%-18s %-55s %-10d %-12d %-12.2f%n", label, e.getSolution().getPath(report.getMatrix()),
+                e.getSolution().getCost(), e.getIteration(), e.getTemperature());
+    }
+}
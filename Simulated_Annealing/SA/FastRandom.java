@@ -0,0 +1,120 @@
+package SA;
+
+import java.util.random.RandomGenerator;
+
+/* Random generator of the annealers: xoshiro256** (Blackman and Vigna), seeded through
+ * SplitMix64. java.util.Random updates its seed with a compare-and-set on every call and only
+ * has 48 bits of state; this generator is a few shifts and multiplications on plain fields, so
+ * it must not be shared between threads. Every chain owns one.
+ *
+ * Parallel runs get their streams with split(): the generator jumps 2^128 numbers ahead and the
+ * new one continues from where it was, so the streams never overlap and only depend on the
+ * master seed and the order of the splits, not on thread scheduling.
+ */
+public class FastRandom implements RandomGenerator {
+
+    // Polynomial of the xoshiro256 jump function, equivalent to 2^128 calls to nextLong()
+    private static final long[] JUMP = {0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL, 0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL};
+
+    private long s0, s1, s2, s3;
+
+    public FastRandom(long seed) {
+        // SplitMix64 spreads the seed over the 256 bits of state (never all zero)
+        long x = seed;
+        this.s0 = splitMix(x += 0x9E3779B97F4A7C15L);
+        this.s1 = splitMix(x += 0x9E3779B97F4A7C15L);
+        this.s2 = splitMix(x += 0x9E3779B97F4A7C15L);
+        this.s3 = splitMix(x + 0x9E3779B97F4A7C15L);
+    }
+
+    private FastRandom(long s0, long s1, long s2, long s3) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    // Returns the state of the generator (for checkpoints)
+    long[] getState() {
+        return new long[]{this.s0, this.s1, this.s2, this.s3};
+    }
+
+    // Restores a state returned by getState()
+    void setState(long[] state) {
+        if ((state[0] | state[1] | state[2] | state[3]) == 0) throw new IllegalArgumentException("Invalid generator state");
+        this.s0 = state[0];
+        this.s1 = state[1];
+        this.s2 = state[2];
+        this.s3 = state[3];
+    }
+
+    // Returns an independent generator: a copy of this one, after which this one jumps 2^128 numbers ahead
+    public FastRandom split() {
+        FastRandom stream = new FastRandom(this.s0, this.s1, this.s2, this.s3);
+        jump();
+        return stream;
+    }
+
+    // Private: advances the state by 2^128 steps
+    private void jump() {
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+        for (long word : JUMP) {
+            for (int b = 0; b < 64; b++) {
+                if ((word & (1L << b)) != 0) {
+                    t0 ^= this.s0;
+                    t1 ^= this.s1;
+                    t2 ^= this.s2;
+                    t3 ^= this.s3;
+                }
+                nextLong();
+            }
+        }
+        this.s0 = t0;
+        this.s1 = t1;
+        this.s2 = t2;
+        this.s3 = t3;
+    }
+
+    // Private: SplitMix64 output function
+    private static long splitMix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(this.s1 * 5, 7) * 9;
+        long t = this.s1 << 17;
+        this.s2 ^= this.s0;
+        this.s3 ^= this.s1;
+        this.s1 ^= this.s2;
+        this.s0 ^= this.s3;
+        this.s2 ^= t;
+        this.s3 = Long.rotateLeft(this.s3, 45);
+        return result;
+    }
+
+    // Uniform integer in [0, bound), by Lemire's multiply-and-reject method
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        long m = (nextLong() >>> 32) * bound;
+        if ((m & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while ((m & 0xFFFFFFFFL) < threshold) m = (nextLong() >>> 32) * bound;
+        }
+        return (int) (m >>> 32);
+    }
+
+    // Uniform double in [0, 1) with 53 random bits
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+}
@@ -0,0 +1,502 @@
+package SA;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.Distances;
+import distanceMatrix.SubInstance;
+import java.util.Arrays;
+
+/* Starting tours for the annealer, as orders of the cities 0..n-1.
+ *
+ *   random    uniform random permutation
+ *   nearest   nearest neighbor: always go to the closest unvisited city (about 25% above optimal)
+ *   greedy    greedy edge matching: shortest edges first, as long as they keep a set of paths
+ *             (about 15-20% above optimal)
+ *   spacefill cities sorted along a Hilbert curve over their coordinates (about 25-40% above
+ *             optimal, but only a sort), for coordinate instances and views over them
+ *
+ * Nearest neighbor and greedy look at the candidate lists of the cities first. When all the
+ * candidates of a city are used, the nearest remaining city is searched in a grid over the
+ * coordinates of planar instances, ring by ring around the city, so both take about
+ * O(n k log(n k)) instead of O(n^2). Matrix and GEO instances scan the remaining cities then.
+ */
+class InitialTours {
+
+    static final String[] METHODS = {"random", "nearest", "greedy", "spacefill"};
+
+    // Hilbert curve resolution: 2^16 x 2^16 cells over the bounding box of the cities
+    private static final int HILBERT_ORDER = 16;
+
+    private InitialTours() {
+    }
+
+    // Returns true if the method can build tours for the instance
+    static boolean supports(String method, Distances m) {
+        switch (method) {
+            case "random":
+            case "nearest":
+            case "greedy":
+                return true;
+            case "spacefill":
+                return coordinates(m) != null;
+            default:
+                throw new IllegalArgumentException("Unknown initial tour: " + method);
+        }
+    }
+
+    // Builds a tour with the given method. The candidate lists are only used by nearest and greedy.
+    static int[] build(String method, Distances m, CandidateLists candidates, FastRandom rng) {
+        switch (method) {
+            case "random":
+                return random(m.size(), rng);
+            case "nearest":
+                return nearestNeighbor(m, candidates, rng.nextInt(m.size()));
+            case "greedy":
+                return greedy(m, candidates);
+            case "spacefill":
+                return spaceFillingCurve(m);
+            default:
+                throw new IllegalArgumentException("Unknown initial tour: " + method);
+        }
+    }
+
+    // Uniform random permutation (Fisher-Yates shuffle, same as Collections.shuffle)
+    static int[] random(int n, FastRandom rng) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int r = rng.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[r];
+            order[r] = tmp;
+        }
+        return order;
+    }
+
+    // Nearest neighbor tour from the given city, following the candidate lists
+    static int[] nearestNeighbor(Distances m, CandidateLists candidates, int start) {
+        int n = m.size();
+        int[] order = new int[n];
+        Remaining remaining = new Remaining(m);
+        int city = start;
+        remaining.remove(city);
+        order[0] = city;
+        for (int p = 1; p < n; p++) {
+            int next = -1;
+            for (int r = 0; r < candidates.size(); r++) {
+                int c = candidates.get(city, r);
+                if (remaining.contains(c)) {
+                    next = c; // lists are sorted, the first unvisited candidate is the nearest one
+                    break;
+                }
+            }
+            if (next < 0) next = remaining.nearest(city);
+            remaining.remove(next);
+            order[p] = next;
+            city = next;
+        }
+        return order;
+    }
+
+    // Greedy edge tour: candidate edges in increasing length are added when both cities have
+    // degree < 2 and the edge closes no cycle; the resulting paths are then linked end to end
+    static int[] greedy(Distances m, CandidateLists candidates) {
+        int n = m.size();
+        int k = candidates.size();
+
+        // Each candidate edge once, sorted by length (key = length << 32 | edge number)
+        int[] from = new int[n * k];
+        int[] to = new int[n * k];
+        long[] keys = new long[n * k];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            for (int r = 0; r < k; r++) {
+                int j = candidates.get(i, r);
+                if (j < i && isCandidate(candidates, j, i)) continue; // already added from j's list
+                from[edges] = i;
+                to[edges] = j;
+                keys[edges] = ((long) m.distance(i, j) << 32) | edges;
+                edges++;
+            }
+        }
+        keys = Arrays.copyOf(keys, edges);
+        Arrays.sort(keys);
+
+        // Adjacency of the paths (-1 = no neighbor) and union-find over the cities
+        int[] adj = new int[2 * n];
+        Arrays.fill(adj, -1);
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (long key : keys) {
+            int e = (int) key;
+            int a = from[e], b = to[e];
+            if (adj[2 * a + 1] >= 0 || adj[2 * b + 1] >= 0) continue;
+            int ra = find(parent, a), rb = find(parent, b);
+            if (ra == rb) continue;
+            parent[ra] = rb;
+            adj[adj[2 * a] < 0 ? 2 * a : 2 * a + 1] = b;
+            adj[adj[2 * b] < 0 ? 2 * b : 2 * b + 1] = a;
+        }
+
+        // Other end of the path of every endpoint (a city with no edge is a path of its own)
+        int[] otherEnd = new int[n];
+        Arrays.fill(otherEnd, -1);
+        Remaining endpoints = new Remaining(m);
+        for (int i = 0; i < n; i++) {
+            if (adj[2 * i + 1] >= 0) endpoints.remove(i);
+        }
+        for (int i = 0; i < n; i++) {
+            if (adj[2 * i + 1] < 0 && otherEnd[i] < 0) {
+                int prev = -1, city = i;
+                while (true) {
+                    int next = adj[2 * city] != prev ? adj[2 * city] : adj[2 * city + 1];
+                    if (next < 0) break;
+                    prev = city;
+                    city = next;
+                }
+                otherEnd[i] = city;
+                otherEnd[city] = i;
+            }
+        }
+
+        // Walk the paths, going from the end of each one to the nearest free endpoint
+        int[] order = new int[n];
+        int p = 0;
+        int end = endpoints.first();
+        while (true) {
+            endpoints.remove(end);
+            endpoints.remove(otherEnd[end]);
+            int prev = -1, city = end;
+            while (city >= 0) {
+                order[p++] = city;
+                int next = adj[2 * city] != prev ? adj[2 * city] : adj[2 * city + 1];
+                prev = city;
+                city = next;
+            }
+            if (p == n) break;
+            int last = order[p - 1];
+            end = -1;
+            for (int r = 0; r < k && end < 0; r++) {
+                int c = candidates.get(last, r);
+                if (endpoints.contains(c)) end = c;
+            }
+            if (end < 0) end = endpoints.nearest(last);
+        }
+        return order;
+    }
+
+    // Completes a partial tour (an order of some of the cities) by inserting each missing city,
+    // in index order, between the two consecutive cities where it adds the least length. Only
+    // the edges next to its candidates are tried, or every edge if none of them is in the tour yet.
+    static int[] insert(Distances m, CandidateLists candidates, int[] partial) {
+        int n = m.size();
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        Arrays.fill(next, -1);
+        int start = partial.length > 0 ? partial[0] : 0;
+        if (partial.length == 0) {
+            next[start] = start;
+            prev[start] = start;
+        }
+        for (int i = 0; i < partial.length; i++) {
+            int a = partial[i], b = partial[(i + 1) % partial.length];
+            next[a] = b;
+            prev[b] = a;
+        }
+
+        for (int x = 0; x < n; x++) {
+            if (next[x] >= 0) continue;
+            int after = -1;
+            long bestCost = Long.MAX_VALUE;
+            for (int r = 0; r < candidates.size(); r++) {
+                int c = candidates.get(x, r);
+                if (next[c] < 0) continue;
+                // Edges (c, next c) and (prev c, c)
+                for (int u : new int[]{c, prev[c]}) {
+                    long cost = insertionCost(m, u, next[u], x);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        after = u;
+                    }
+                }
+            }
+            if (after < 0) {
+                int u = start;
+                do {
+                    long cost = insertionCost(m, u, next[u], x);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        after = u;
+                    }
+                    u = next[u];
+                } while (u != start);
+            }
+            int v = next[after];
+            next[after] = x;
+            prev[x] = after;
+            next[x] = v;
+            prev[v] = x;
+        }
+
+        int[] order = new int[n];
+        int city = start;
+        for (int p = 0; p < n; p++) {
+            order[p] = city;
+            city = next[city];
+        }
+        return order;
+    }
+
+    // Cities sorted by their position along a Hilbert curve over the bounding box
+    static int[] spaceFillingCurve(Distances m) {
+        double[][] xy = coordinates(m);
+        if (xy == null) throw new IllegalArgumentException("The space-filling curve needs city coordinates");
+        int n = m.size();
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xy[0][i]);
+            maxX = Math.max(maxX, xy[0][i]);
+            minY = Math.min(minY, xy[1][i]);
+            maxY = Math.max(maxY, xy[1][i]);
+        }
+        // Same scale on both axes, so the curve does not stretch the instance
+        double side = Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+        int cells = 1 << HILBERT_ORDER;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int cx = (int) Math.min(cells - 1, (xy[0][i] - minX) / side * cells);
+            int cy = (int) Math.min(cells - 1, (xy[1][i] - minY) / side * cells);
+            keys[i] = (hilbertIndex(cx, cy) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = (int) keys[i];
+        return order;
+    }
+
+    // Private: position of cell (x, y) along the Hilbert curve of order HILBERT_ORDER
+    private static long hilbertIndex(int x, int y) {
+        long d = 0;
+        for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant so the sub-curve is in the standard orientation
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    // Private: the x and y coordinates of the cities, or null if the instance has none
+    private static double[][] coordinates(Distances m) {
+        if (m instanceof CoordinateInstance) {
+            CoordinateInstance c = (CoordinateInstance) m;
+            double[][] xy = new double[2][m.size()];
+            for (int i = 0; i < m.size(); i++) {
+                xy[0][i] = c.getX(i);
+                xy[1][i] = c.getY(i);
+            }
+            return xy;
+        }
+        if (m instanceof SubInstance) {
+            SubInstance view = (SubInstance) m;
+            double[][] parent = coordinates(view.getParent());
+            if (parent == null) return null;
+            double[][] xy = new double[2][m.size()];
+            for (int i = 0; i < m.size(); i++) {
+                xy[0][i] = parent[0][view.parentIndex(i)];
+                xy[1][i] = parent[1][view.parentIndex(i)];
+            }
+            return xy;
+        }
+        return null;
+    }
+
+    // Private: factor of the euclidean distance of the coordinates that the distances of a planar
+    // instance are at least, less 1 for the rounding, or 0 if the instance is not planar
+    private static double planarScale(Distances m) {
+        if (m instanceof SubInstance) return planarScale(((SubInstance) m).getParent());
+        if (!(m instanceof CoordinateInstance)) return 0.0;
+        switch (((CoordinateInstance) m).getType()) {
+            case GEO:
+                return 0.0;
+            case ATT:
+                return 1.0 / Math.sqrt(10.0);
+            default:
+                return 1.0;
+        }
+    }
+
+    // Private: length added to the tour by inserting x between u and v
+    private static long insertionCost(Distances m, int u, int v, int x) {
+        return (long) m.distance(u, x) + m.distance(x, v) - m.distance(u, v);
+    }
+
+    // Private: true if j is a candidate of i
+    private static boolean isCandidate(CandidateLists candidates, int i, int j) {
+        for (int r = 0; r < candidates.size(); r++) {
+            if (candidates.get(i, r) == j) return true;
+        }
+        return false;
+    }
+
+    // Private: root of a city in the union-find forest, halving the path on the way
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // A set of cities with O(1) membership and removal (swap with the last one) and a query for
+    // the nearest remaining city, for the steps the candidate lists cannot decide
+    private static class Remaining {
+        private final Distances m;
+        private final int[] cities;
+        private final int[] position; // position in cities, -1 once removed
+        private int size;
+
+        // Grid of the cities of a planar instance, built on the first query
+        private Grid grid;
+
+        Remaining(Distances m) {
+            int n = m.size();
+            this.m = m;
+            this.cities = new int[n];
+            this.position = new int[n];
+            for (int i = 0; i < n; i++) {
+                this.cities[i] = i;
+                this.position[i] = i;
+            }
+            this.size = n;
+        }
+
+        boolean contains(int city) {
+            return this.position[city] >= 0;
+        }
+
+        void remove(int city) {
+            int p = this.position[city];
+            if (p < 0) return;
+            int last = this.cities[--this.size];
+            this.cities[p] = last;
+            this.position[last] = p;
+            this.position[city] = -1;
+            if (this.grid != null) this.grid.count[this.grid.cellOf[city]]--;
+        }
+
+        int first() {
+            return this.cities[0];
+        }
+
+        // Nearest remaining city: from the grid on planar instances, else (or when the grid would
+        // have to look at more cells than there are cities left) by a scan of the remaining cities
+        int nearest(int from) {
+            if (this.grid == null && planarScale(this.m) > 0) this.grid = new Grid(this);
+            int best = this.grid == null ? -1 : this.grid.nearest(from);
+            if (best >= 0) return best;
+            int bestDist = Integer.MAX_VALUE;
+            for (int p = 0; p < this.size; p++) {
+                int d = this.m.distance(from, this.cities[p]);
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = this.cities[p];
+                }
+            }
+            return best;
+        }
+    }
+
+    // Uniform grid over the coordinates of a planar instance with about two cities per cell (as
+    // in CandidateLists) and the number of remaining cities in every cell
+    private static class Grid {
+        private final Remaining remaining;
+        private final double scale;
+        private final double x0, y0, cell;
+        private final int cols, rows;
+        private final int[] cellOf;
+        private final int[] cellStart; // cellStart[c]..cellStart[c+1] are the cities of cell c in cellCities
+        private final int[] cellCities;
+        private final int[] count;
+
+        Grid(Remaining remaining) {
+            Distances m = remaining.m;
+            int n = m.size();
+            double[][] xy = coordinates(m);
+            this.remaining = remaining;
+            this.scale = planarScale(m);
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xy[0][i]);
+                maxX = Math.max(maxX, xy[0][i]);
+                minY = Math.min(minY, xy[1][i]);
+                maxY = Math.max(maxY, xy[1][i]);
+            }
+            double width = Math.max(maxX - minX, 1e-9), height = Math.max(maxY - minY, 1e-9);
+            this.cell = Math.max(Math.sqrt(width * height / Math.max(1, n / 2)), Math.max(width, height) / 4096);
+            this.x0 = minX;
+            this.y0 = minY;
+            this.cols = (int) (width / this.cell) + 1;
+            this.rows = (int) (height / this.cell) + 1;
+
+            // Cities sorted by cell (counting sort)
+            this.cellOf = new int[n];
+            this.cellStart = new int[this.cols * this.rows + 1];
+            this.count = new int[this.cols * this.rows];
+            for (int i = 0; i < n; i++) {
+                int cx = (int) ((xy[0][i] - minX) / this.cell), cy = (int) ((xy[1][i] - minY) / this.cell);
+                this.cellOf[i] = cy * this.cols + cx;
+                this.cellStart[this.cellOf[i] + 1]++;
+                if (remaining.contains(i)) this.count[this.cellOf[i]]++;
+            }
+            for (int c = 0; c < this.cols * this.rows; c++) this.cellStart[c + 1] += this.cellStart[c];
+            this.cellCities = new int[n];
+            int[] fill = this.cellStart.clone();
+            for (int i = 0; i < n; i++) this.cellCities[fill[this.cellOf[i]]++] = i;
+        }
+
+        // Nearest remaining city, searching rings of cells around the city until no unvisited cell
+        // can hold a closer one; -1 if none was found before the rings held more cells than there
+        // are remaining cities (a scan is then cheaper)
+        int nearest(int from) {
+            Distances m = this.remaining.m;
+            int cx = this.cellOf[from] % this.cols, cy = this.cellOf[from] / this.cols;
+            int best = -1, bestDist = Integer.MAX_VALUE;
+            int visited = 0;
+            for (int r = 0; ; r++) {
+                // Cells of ring r: the border of the (2r+1) x (2r+1) square around the city's cell
+                for (int y = Math.max(0, cy - r); y <= Math.min(this.rows - 1, cy + r); y++) {
+                    int step = (y == cy - r || y == cy + r) ? 1 : 2 * r;
+                    for (int x = cx - r; x <= cx + r; x += Math.max(step, 1)) {
+                        if (x < 0 || x >= this.cols) continue;
+                        int c = y * this.cols + x;
+                        visited++;
+                        if (this.count[c] == 0) continue;
+                        for (int p = this.cellStart[c]; p < this.cellStart[c + 1]; p++) {
+                            int j = this.cellCities[p];
+                            if (!this.remaining.contains(j)) continue;
+                            int d = m.distance(from, j);
+                            if (d < bestDist || (d == bestDist && j < best)) {
+                                bestDist = d;
+                                best = j;
+                            }
+                        }
+                    }
+                }
+                // Every city outside rings 0..r is at least r cells away
+                boolean covered = cx - r <= 0 && cy - r <= 0 && cx + r >= this.cols - 1 && cy + r >= this.rows - 1;
+                if (covered || (best >= 0 && bestDist + 1 <= r * this.cell * this.scale)) return best;
+                if (visited > this.remaining.size) return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package SA;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.DistanceMatrix;
+import distanceMatrix.Distances;
+import distanceMatrix.SubInstance;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/* Instances given by their specification, loaded once and then shared by every run that uses
+ * them (annealers only read them), together with their candidate lists. Used by the batch
+ * runner and the solver service.
+ *
+ * A specification is a matrix file (text or binary), a TSPLIB file (.tsp), a matrix file
+ * followed by ":" and the initials of a subset of its cities, or one of E1, E2 and E3.
+ * Subsets are views over the matrix file, which is itself only read once. Files stay loaded;
+ * only the MAX_SUBSETS most recently used subsets are kept, so a long-lived service that sees
+ * many different subsets does not keep all of them, and candidate lists are dropped with their
+ * instance.
+ *
+ * Files are read and candidate lists built outside of any lock, by the first thread that needs
+ * them: threads that need the same one wait for it, the others are not held up.
+ */
+class InstanceCache {
+
+    // Example subsets of Main, as initials of the cities of the matrix file
+    static final Map<String, String> EXAMPLES = Map.of(
+            "E1", "ADPTUV",
+            "E2", "CDGILNOQRSTU",
+            "E3", "BCDEFGHILMNOPQRSTU");
+
+    // Subsets kept for reuse
+    static final int MAX_SUBSETS = 64;
+
+    // Matrix file of the examples
+    private final String matrixFile;
+
+    // Instances read from files, by file name (loaded or loading)
+    private final ConcurrentMap<String, CompletableFuture<Distances>> files;
+
+    // Subsets by specification, least recently used first (guarded by this)
+    private final LinkedHashMap<String, Distances> subsets;
+
+    // Candidate lists by instance and size, as long as the instance is in use (instances do not
+    // override equals, so this is by identity; guarded by this, the lists are built outside of it)
+    private final Map<Distances, ConcurrentMap<Integer, CompletableFuture<CandidateLists>>> candidates;
+
+    InstanceCache(String matrixFile) {
+        this.matrixFile = matrixFile;
+        this.files = new ConcurrentHashMap<>();
+        this.subsets = new LinkedHashMap<String, Distances>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Distances> eldest) {
+                return size() > MAX_SUBSETS;
+            }
+        };
+        this.candidates = new WeakHashMap<>();
+    }
+
+    // Returns the instance of a specification, loading it on first use
+    Distances get(String spec) {
+        Distances m = recentSubset(spec);
+        if (m != null) return m;
+        String file = spec;
+        String initials = null;
+        if (EXAMPLES.containsKey(spec)) {
+            file = this.matrixFile;
+            initials = EXAMPLES.get(spec);
+        } else {
+            int colon = spec.lastIndexOf(':');
+            // A colon followed by a path separator is part of the path (C:\...), not a subset
+            if (colon > 0 && colon < spec.length() - 1 && spec.indexOf('/', colon) < 0 && spec.indexOf('\\', colon) < 0) {
+                file = spec.substring(0, colon);
+                initials = spec.substring(colon + 1);
+            }
+        }
+        if (initials == null) return file(file);
+        if (file.toLowerCase().endsWith(".tsp")) throw new IllegalArgumentException("Subsets are only supported for matrix files: " + spec);
+        DistanceMatrix base = (DistanceMatrix) file(file);
+        String subset = initials;
+        return keepSubset(spec, () -> base.subset(subset));
+    }
+
+    // Returns the specifications of the instances loaded so far: files, then the subsets kept
+    List<String> loaded() {
+        List<String> specs = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Distances>> e : this.files.entrySet()) {
+            if (e.getValue().isDone() && !e.getValue().isCompletedExceptionally()) specs.add(e.getKey());
+        }
+        Collections.sort(specs);
+        synchronized (this) {
+            specs.addAll(this.subsets.keySet());
+        }
+        return specs;
+    }
+
+    // Returns a view of some cities of an instance, given by name. A recently used subset of the
+    // same instance is the same view, so its candidate lists are not built again.
+    Distances subset(String spec, List<String> cities) {
+        String key = spec + ":" + String.join(",", cities);
+        Distances view = recentSubset(key);
+        if (view != null) return view;
+        Distances m = get(spec);
+        if (m instanceof DistanceMatrix) return keepSubset(key, () -> ((DistanceMatrix) m).subset(cities));
+        return keepSubset(key, () -> {
+            int[] idx = new int[cities.size()];
+            for (int i = 0; i < idx.length; i++) {
+                idx[i] = m.indexOf(cities.get(i));
+                if (idx[i] < 0) throw new IllegalArgumentException("Unknown city: " + cities.get(i));
+            }
+            return new SubInstance(m, idx);
+        });
+    }
+
+    // Returns the k nearest-neighbor candidate lists of an instance, building them on first use
+    CandidateLists candidates(Distances m, int k) {
+        ConcurrentMap<Integer, CompletableFuture<CandidateLists>> lists;
+        synchronized (this) {
+            lists = this.candidates.computeIfAbsent(m, key -> new ConcurrentHashMap<>());
+        }
+        return load(lists, k, key -> CandidateLists.build(m, key));
+    }
+
+    // Private: the subset kept for a specification, or null
+    private synchronized Distances recentSubset(String key) {
+        return this.subsets.get(key);
+    }
+
+    // Private: the subset kept for a specification, creating it if there is none (views only take
+    // O(k) to create, so this is done under the lock)
+    private synchronized Distances keepSubset(String key, Supplier<Distances> view) {
+        Distances m = this.subsets.get(key);
+        if (m == null) {
+            m = view.get();
+            this.subsets.put(key, m);
+        }
+        return m;
+    }
+
+    // Private: the instance of a file (matrix or TSPLIB), read on first use
+    private Distances file(String file) {
+        return load(this.files, file, f -> f.toLowerCase().endsWith(".tsp") ? CoordinateInstance.load(f) : new DistanceMatrix(f));
+    }
+
+    // Private: the value of a key, computed by the first thread that asks for it while the others
+    // wait for it. A failed computation is forgotten, so the next request tries again.
+    private static <K, V> V load(ConcurrentMap<K, CompletableFuture<V>> map, K key, Function<K, V> loader) {
+        CompletableFuture<V> future = map.get(key);
+        if (future == null) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            future = map.putIfAbsent(key, created);
+            if (future == null) {
+                try {
+                    created.complete(loader.apply(key));
+                } catch (RuntimeException | Error e) {
+                    map.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+                return created.join();
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+}
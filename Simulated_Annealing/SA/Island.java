@@ -0,0 +1,193 @@
+package SA;
+
+import Solutions.Solution;
+import distanceMatrix.Distances;
+import java.io.*;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.*;
+
+/* An island process of the island model (see IslandCoordinator): runs one or more annealing chains,
+ * each one an island with its own connection to the coordinator. A chain sends its best tour to the
+ * coordinator at most every migration interval, when it has improved since the last time, and
+ * continues from the migrants it receives when they are shorter than its current tour (see
+ * SimulatedAnnealing.offerSolution). The instance and the settings of the run come from the
+ * coordinator; the chains of a process share the instance and its candidate lists.
+ *
+ *   coordinator = 127.0.0.1:9000    address of the coordinator (required, a port alone is on this machine)
+ *   chains      = 1                 islands run by this process, one thread each
+ */
+public class Island {
+
+    private final String host;
+    private final int port;
+    private final int chains;
+
+    // Instances of the process, created by the first chain that gets its configuration
+    private InstanceCache cache;
+
+    public Island(Properties config) {
+        String address = config.getProperty("coordinator");
+        if (address == null) throw new IllegalArgumentException("Missing configuration key: coordinator");
+        int colon = address.lastIndexOf(':');
+        this.host = colon < 0 ? "127.0.0.1" : address.substring(0, colon).trim();
+        this.port = Integer.parseInt(address.substring(colon + 1).trim());
+        this.chains = Integer.parseInt(config.getProperty("chains", "1").trim());
+        if (this.chains < 1) throw new IllegalArgumentException("There must be at least 1 chain.");
+    }
+
+    // Usage: Island coordinator=host:port [chains=n]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties config = BatchRunner.parseArguments(args);
+        if (!config.containsKey("coordinator")) {
+            System.out.println("Usage: Island coordinator=host:port [chains=n]");
+            return;
+        }
+        new Island(config).run();
+    }
+
+    // Runs the chains of the process until all of them are done
+    public void run() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < this.chains; c++) {
+            Thread t = new Thread(() -> {
+                try {
+                    runChain();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Island chain failed: " + e);
+                }
+            }, "island-chain-" + c);
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) t.join();
+    }
+
+    // Private: the instance cache of the process, with the matrix file of the examples of the configuration
+    private synchronized InstanceCache cache(Properties config) {
+        if (this.cache == null) this.cache = new InstanceCache(config.getProperty("matrix", "distancias.txt").trim());
+        return this.cache;
+    }
+
+    // Private: one island, from joining the coordinator to sending it the final tour
+    private void runChain() throws IOException {
+        try (Socket socket = new Socket(this.host, this.port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(IslandCoordinator.HELLO);
+            out.flush();
+
+            // Waits for every island to join
+            if (in.readByte() != IslandCoordinator.START) throw new IOException("Unexpected message from the coordinator");
+            int id = in.readInt();
+            int islands = in.readInt();
+            long seed = in.readLong();
+            int cities = in.readInt();
+            Properties config = new Properties();
+            config.load(new StringReader(in.readUTF()));
+
+            String spec = config.getProperty("instance");
+            Distances m = cache(config).get(spec);
+            if (m.size() != cities) {
+                throw new IOException("The instance " + spec + " has " + m.size() + " cities here and " + cities + " at the coordinator");
+            }
+            SimulatedAnnealing sa = new SimulatedAnnealing(m, seed);
+            sa.setVerbose(false);
+            int k = Integer.parseInt(config.getProperty("candidates", "10").trim());
+            if (k > 0) sa.setCandidateLists(this.cache.candidates(m, k));
+            sa.setMoveOperators(config.getProperty("operators", "2opt").trim(),
+                    Boolean.parseBoolean(config.getProperty("adaptive", "false").trim()));
+            sa.setInitialTour(config.getProperty("start", "random").trim());
+            sa.setTargetGap(Double.parseDouble(config.getProperty("gap", "0").trim()));
+            sa.setMaxIterations(Integer.parseInt(config.getProperty("iterations", "0").trim()));
+            long migration = Long.parseLong(config.getProperty("migration", "1000").trim());
+            long time = Long.parseLong(config.getProperty("time", "10000").trim());
+
+            Emigration emigration = new Emigration(out, migration);
+            sa.addListener(emigration);
+
+            // Migrants are read by their own thread and taken by the run between two temperature steps
+            Thread immigration = new Thread(() -> {
+                try {
+                    while (in.readByte() == IslandCoordinator.MIGRANT) {
+                        int n = in.readInt();
+                        int[] order = new int[n];
+                        for (int i = 0; i < n; i++) order[i] = in.readInt();
+                        sa.offerSolution(order);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    // the connection is closed at the end of the run
+                }
+            }, "island-" + id + "-migrants");
+            immigration.setDaemon(true);
+            immigration.start();
+
+            AnnealingResult result = time > 0 ? sa.solve(Duration.ofMillis(time)) : sa.run();
+            int adopted = sa.getMetrics().getAdoptedTours();
+            synchronized (out) {
+                out.writeByte(IslandCoordinator.DONE);
+                out.writeLong(result.getIterations());
+                out.writeInt(adopted);
+                IslandCoordinator.writeTour(out, order(result.getBest()));
+                out.flush();
+            }
+            System.out.println("Island " + id + " of " + islands + ": " + result.getBestCost() + ", "
+                    + result.getIterations() + " iterations, " + adopted + " migrants adopted, " + result.getStopReason());
+        }
+    }
+
+    // Private: the cities of a solution in tour order
+    private static int[] order(Solution s) {
+        int[] order = new int[s.size()];
+        s.getTour().toArray(order);
+        return order;
+    }
+
+    // Sends the best tour of the run to the coordinator at the end of the temperature steps, at most
+    // once per migration interval and only when it improved since the last one sent
+    private static class Emigration implements AnnealingListener {
+        private final DataOutputStream out;
+        private final long intervalNanos;
+        private Solution latest;
+        private int sentCost;
+        private long lastSent;
+        private boolean connected;
+
+        Emigration(DataOutputStream out, long intervalMillis) {
+            this.out = out;
+            this.intervalNanos = intervalMillis * 1_000_000;
+            this.sentCost = Integer.MAX_VALUE;
+            this.connected = true;
+        }
+
+        @Override
+        public void onStart(SimulatedAnnealing annealer, double averageDistance) {
+            this.lastSent = System.nanoTime();
+        }
+
+        @Override
+        public void onImprovement(Solution best, int iteration, long elapsedNanos) {
+            this.latest = best;
+        }
+
+        @Override
+        public void onTemperatureStep(TemperatureStep step) {
+            long now = System.nanoTime();
+            if (!this.connected || this.latest == null || this.latest.getCost() >= this.sentCost
+                    || now - this.lastSent < this.intervalNanos) return;
+            try {
+                synchronized (this.out) {
+                    this.out.writeByte(IslandCoordinator.TOUR);
+                    IslandCoordinator.writeTour(this.out, order(this.latest));
+                    this.out.flush();
+                }
+                this.sentCost = this.latest.getCost();
+                this.lastSent = now;
+            } catch (IOException e) {
+                this.connected = false; // the run continues on its own
+                System.err.println("Lost the coordinator: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package SA;
+
+import distanceMatrix.Distances;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* Island model over TCP: several islands (annealing chains, usually in separate processes, see
+ * Island) solve the same instance and periodically send their best tour to this coordinator, which
+ * passes it on to other islands as a migrant according to the topology and keeps the global best.
+ * An island continues from a migrant if it is shorter than its current tour.
+ *
+ * The coordinator listens on the loopback interface. It waits until all the islands have joined,
+ * then sends each one its number, its seed and the configuration of the run, so every island solves
+ * with the same settings and the time budgets start together. It can launch the island processes
+ * itself (spawn), which is how the whole model runs on one machine:
+ *
+ *   instance   = E3                (required) instance specification, as in BatchRunner
+ *   matrix     = distancias.txt    matrix file of the examples E1, E2 and E3
+ *   islands    = 4                 number of islands taking part
+ *   spawn      = <islands>         island processes to launch on this machine, sharing the islands
+ *                                  evenly (0 = wait for islands started by hand, see Island)
+ *   port       = 0                 TCP port (0 = any free port)
+ *   topology   = ring              where a migrant goes: ring (the next island), broadcast (every other
+ *                                  island), star (every other island, only when it is a new global
+ *                                  best) or random (one other island at random)
+ *   migration  = 1000              milliseconds between two migrations from an island
+ *   time       = 10000             time budget of each island in milliseconds (0 = iterations)
+ *   iterations = 0                 iteration budget of each island when there is no time budget
+ *   seed       = <random>          island i uses seed + i
+ *   candidates = 10, operators = 2opt, adaptive = false, start = random, gap = 0
+ *   join_timeout = 60000           milliseconds to wait for all the islands to join
+ *   max_wait   = time + 30000      milliseconds to wait for the islands to finish once started (0 = no
+ *                                  limit, the default without a time budget); the islands that have
+ *                                  not finished by then are left out of the result
+ *   output     = <none>            file for the best tour, one city name per line
+ *
+ * Messages are binary (DataOutputStream), each one a type byte followed by its fields:
+ *   island -> coordinator   HELLO, TOUR (int n, n cities), DONE (long iterations, int adopted, int n, n cities)
+ *   coordinator -> island   START (int island, int islands, long seed, int n, UTF configuration),
+ *                           MIGRANT (int n, n cities)
+ */
+public class IslandCoordinator {
+
+    static final byte HELLO = 'H';
+    static final byte START = 'S';
+    static final byte TOUR = 'T';
+    static final byte MIGRANT = 'M';
+    static final byte DONE = 'D';
+
+    // Keys of the configuration that are passed on to the islands
+    static final String[] ISLAND_KEYS = {"instance", "matrix", "migration", "time", "iterations",
+            "candidates", "operators", "adaptive", "start", "gap"};
+
+    private static final String[] TOPOLOGIES = {"ring", "broadcast", "star", "random"};
+
+    // Time the islands get beyond their time budget to load the instance and report, and time the
+    // island processes get to exit once their islands are done, in milliseconds
+    private static final long FINISH_GRACE = 30_000;
+    private static final long EXIT_GRACE = 5_000;
+
+    private final Properties config;
+    private final Distances matrix;
+    private final int islandCount;
+    private final int spawnCount;
+    private final String topology;
+    private final long seed;
+    private final long joinTimeout;
+    private final long maxWait;
+
+    private final List<Link> links;
+    private final Random random;
+    private final CountDownLatch finished;
+
+    // Global best: cost, tour and island that found it (-1 = none yet)
+    private int bestCost;
+    private int[] bestTour;
+    private int bestIsland;
+    private long migrations;
+
+    public IslandCoordinator(Properties config) {
+        if (!config.containsKey("instance")) throw new IllegalArgumentException("Missing configuration key: instance");
+        this.config = config;
+        this.islandCount = Integer.parseInt(config.getProperty("islands", "4").trim());
+        this.spawnCount = Integer.parseInt(config.getProperty("spawn", Integer.toString(this.islandCount)).trim());
+        this.topology = config.getProperty("topology", "ring").trim().toLowerCase();
+        this.seed = config.containsKey("seed") ? Long.parseLong(config.getProperty("seed").trim()) : new Random().nextLong();
+        this.joinTimeout = Long.parseLong(config.getProperty("join_timeout", "60000").trim());
+        long time = Long.parseLong(config.getProperty("time", "10000").trim());
+        this.maxWait = Long.parseLong(config.getProperty("max_wait", time > 0 ? Long.toString(time + FINISH_GRACE) : "0").trim());
+        if (this.islandCount < 1) throw new IllegalArgumentException("There must be at least 1 island.");
+        if (this.spawnCount < 0 || this.spawnCount > this.islandCount) {
+            throw new IllegalArgumentException("Between 0 and " + this.islandCount + " island processes can be spawned.");
+        }
+        if (!Arrays.asList(TOPOLOGIES).contains(this.topology)) throw new IllegalArgumentException("Unknown topology: " + this.topology);
+        InstanceCache cache = new InstanceCache(config.getProperty("matrix", "distancias.txt").trim());
+        this.matrix = cache.get(config.getProperty("instance").trim());
+        if (this.matrix.size() < 2) throw new IllegalArgumentException("There must be at least 2 cities.");
+        this.links = new ArrayList<>();
+        this.random = new Random(this.seed);
+        this.finished = new CountDownLatch(this.islandCount);
+        this.bestCost = Integer.MAX_VALUE;
+        this.bestIsland = -1;
+    }
+
+    // Usage: IslandCoordinator [config.properties] [key=value ...]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties config = BatchRunner.parseArguments(args);
+        if (!config.containsKey("instance")) {
+            System.out.println("Usage: IslandCoordinator [config.properties] [key=value ...]");
+            System.out.println("Keys: instance (required), matrix, islands, spawn, port, topology, migration, time, iterations,");
+            System.out.println("      seed, candidates, operators, adaptive, start, gap, join_timeout, max_wait, output");
+            return;
+        }
+        new IslandCoordinator(config).run();
+    }
+
+    // A connected island
+    private static class Link {
+        final int id;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        // Cost of the last tour the island reported (its best so far), and whether it is still running
+        volatile int reportedCost = Integer.MAX_VALUE;
+        volatile boolean running = true;
+        int finalCost = -1;
+        long iterations;
+        int adopted;
+
+        Link(int id, Socket socket) throws IOException {
+            this.id = id;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    // Waits for the islands (launching the local ones), runs the model and prints the global best.
+    // Whatever happens, the connections are closed and the island processes it launched are stopped.
+    public void run() throws IOException, InterruptedException {
+        List<Process> processes = new ArrayList<>();
+        try {
+            runIslands(processes);
+        } finally {
+            for (Link link : this.links) {
+                try {
+                    link.socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+            long deadline = System.currentTimeMillis() + EXIT_GRACE;
+            for (Process p : processes) {
+                if (!p.waitFor(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    p.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    // Private: the run itself, adding the processes it launches to the list
+    private void runIslands(List<Process> processes) throws IOException, InterruptedException {
+        int port = Integer.parseInt(this.config.getProperty("port", "0").trim());
+        try (ServerSocket server = new ServerSocket(port, this.islandCount, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+            System.out.println("Island coordinator listening on 127.0.0.1:" + port + ", waiting for " + this.islandCount + " islands");
+            for (int p = 0; p < this.spawnCount; p++) {
+                int chains = this.islandCount / this.spawnCount + (p < this.islandCount % this.spawnCount ? 1 : 0);
+                processes.add(spawn(port, chains));
+            }
+
+            // Every island joins before any starts, so their time budgets run together
+            long deadline = System.currentTimeMillis() + this.joinTimeout;
+            while (this.links.size() < this.islandCount) {
+                int wait = (int) (deadline - System.currentTimeMillis());
+                if (wait <= 0) throw new IOException("Only " + this.links.size() + " of " + this.islandCount + " islands joined");
+                server.setSoTimeout(wait);
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                Link link = new Link(this.links.size(), socket);
+                socket.setSoTimeout(wait);
+                try {
+                    if (link.in.readByte() != HELLO) throw new IOException("not an island");
+                } catch (IOException e) {
+                    socket.close(); // anything else connecting to the port is ignored
+                    continue;
+                }
+                socket.setSoTimeout(0);
+                this.links.add(link);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        String islandConfig = islandConfiguration();
+        for (Link link : this.links) {
+            synchronized (link.out) {
+                link.out.writeByte(START);
+                link.out.writeInt(link.id);
+                link.out.writeInt(this.islandCount);
+                link.out.writeLong(this.seed + link.id);
+                link.out.writeInt(this.matrix.size());
+                link.out.writeUTF(islandConfig);
+                link.out.flush();
+            }
+            Thread reader = new Thread(() -> listen(link), "island-" + link.id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+        System.out.println("Started " + this.islandCount + " islands, topology " + this.topology);
+
+        if (this.maxWait > 0 && !this.finished.await(this.maxWait, TimeUnit.MILLISECONDS)) {
+            System.err.println(this.finished.getCount() + " islands did not finish within " + this.maxWait + " ms");
+        } else if (this.maxWait <= 0) {
+            this.finished.await();
+        }
+        long wall = System.currentTimeMillis() - start;
+        report(wall);
+    }
+
+    // Private: launches a local island process with the given number of chains, connected to the port
+    private Process spawn(int port, int chains) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+                Island.class.getName(), "coordinator=127.0.0.1:" + port, "chains=" + chains));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.inheritIO();
+        return builder.start();
+    }
+
+    // Private: the keys of the configuration the islands solve with, as properties text
+    private String islandConfiguration() {
+        StringBuilder sb = new StringBuilder();
+        for (String key : ISLAND_KEYS) {
+            String value = this.config.getProperty(key);
+            if (value != null) sb.append(key).append('=').append(value.trim()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Private: reads the messages of an island until it is done or disconnects
+    private void listen(Link link) {
+        try {
+            while (true) {
+                byte type = link.in.readByte();
+                if (type == TOUR) {
+                    received(link, readTour(link.in));
+                } else if (type == DONE) {
+                    long iterations = link.in.readLong();
+                    int adopted = link.in.readInt();
+                    int cost = received(link, readTour(link.in));
+                    synchronized (this) {
+                        link.iterations = iterations;
+                        link.adopted = adopted;
+                        link.finalCost = cost;
+                    }
+                    break;
+                } else {
+                    throw new IOException("Unknown message " + type);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Island " + link.id + " disconnected: " + e.getMessage());
+        } finally {
+            link.running = false;
+            try {
+                link.socket.close();
+            } catch (IOException ignored) {
+            }
+            this.finished.countDown();
+        }
+    }
+
+    // Private: reads a tour, checking it is a permutation of the cities of the instance
+    private int[] readTour(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n != this.matrix.size()) throw new IOException("Tour of " + n + " cities, the instance has " + this.matrix.size());
+        int[] order = new int[n];
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = in.readInt();
+            if (order[i] < 0 || order[i] >= n || seen[order[i]]) throw new IOException("The tour is not a permutation of the cities");
+            seen[order[i]] = true;
+        }
+        return order;
+    }
+
+    // Private: records the tour an island sent (its cost is computed here, not trusted), updates the
+    // global best and sends the tour on to the islands of the topology. Returns its cost.
+    private int received(Link from, int[] order) {
+        int cost = cost(order);
+        List<Link> targets = new ArrayList<>();
+        synchronized (this) {
+            from.reportedCost = Math.min(from.reportedCost, cost);
+            boolean globalBest = cost < this.bestCost;
+            if (globalBest) {
+                this.bestCost = cost;
+                this.bestTour = order;
+                this.bestIsland = from.id;
+                System.out.println("Island " + from.id + ": " + cost + " (global best)");
+            }
+            List<Link> others = new ArrayList<>();
+            for (Link l : this.links) {
+                // Islands that already have a tour as short would not use it
+                if (l != from && l.running && l.reportedCost > cost) others.add(l);
+            }
+            switch (this.topology) {
+                case "ring":
+                    Link next = this.links.get((from.id + 1) % this.links.size());
+                    if (others.contains(next)) targets.add(next);
+                    break;
+                case "broadcast":
+                    targets.addAll(others);
+                    break;
+                case "star":
+                    if (globalBest) targets.addAll(others);
+                    break;
+                case "random":
+                    if (!others.isEmpty()) targets.add(others.get(this.random.nextInt(others.size())));
+                    break;
+            }
+            this.migrations += targets.size();
+        }
+        for (Link l : targets) {
+            try {
+                synchronized (l.out) {
+                    l.out.writeByte(MIGRANT);
+                    writeTour(l.out, order);
+                    l.out.flush();
+                }
+            } catch (IOException e) {
+                l.running = false; // the island finished in the meantime
+            }
+        }
+        return cost;
+    }
+
+    // Writes a tour as its number of cities followed by the cities in tour order
+    static void writeTour(DataOutputStream out, int[] order) throws IOException {
+        out.writeInt(order.length);
+        for (int c : order) out.writeInt(c);
+    }
+
+    // Private: the length of a closed tour
+    private int cost(int[] order) {
+        int cost = 0;
+        for (int i = 0; i < order.length; i++) cost += this.matrix.distance(order[i], order[(i + 1) % order.length]);
+        return cost;
+    }
+
+    // Private: prints the result of every island and the global best, and writes the best tour
+    private synchronized void report(long wall) throws IOException {
+        System.out.println();
+        System.out.println("island,best_cost,iterations,adopted_migrants");
+        for (Link l : this.links) {
+            System.out.println(l.id + "," + (l.finalCost < 0 ? "" : l.finalCost) + "," + l.iterations + "," + l.adopted);
+        }
+        if (this.bestTour == null) {
+            System.out.println("No island returned a tour.");
+            return;
+        }
+        System.out.println("Global best: " + this.bestCost + " (island " + this.bestIsland + "), "
+                + this.migrations + " migrations, " + wall + " ms");
+        String output = this.config.getProperty("output");
+        if (output != null) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output.trim()), StandardCharsets.UTF_8))) {
+                for (int c : this.bestTour) out.println(this.matrix.cityAt(c));
+            }
+            System.out.println("Best tour written to " + output.trim());
+        } else if (this.bestTour.length <= 100) {
+            StringBuilder sb = new StringBuilder("Tour:");
+            for (int c : this.bestTour) sb.append(' ').append(this.matrix.cityAt(c));
+            System.out.println(sb);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package SA;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.Timespan;
+
+/* Emits Java Flight Recorder events for a run: one per temperature step and one for the whole
+ * run. Annealers only attach this listener to a run when a recording is running as it starts
+ * (see recording()), since the first use of the event classes takes a few hundred milliseconds
+ * per JVM; a recording started later covers the runs that start after it. Record with e.g.
+ *   java -XX:StartFlightRecording=filename=sa.jfr ... Main
+ */
+public class JfrListener implements AnnealingListener {
+
+    @Name("SA.TemperatureStep")
+    @Label("Temperature Step")
+    @Category("Simulated Annealing")
+    @Description("Moves and costs of one temperature step")
+    static class TemperatureStepEvent extends Event {
+        @Label("Step")
+        int step;
+        @Label("Temperature")
+        double temperature;
+        @Label("Moves")
+        int moves;
+        @Label("Accepted Moves")
+        int acceptedMoves;
+        @Label("Current Cost")
+        int currentCost;
+        @Label("Best Cost")
+        int bestCost;
+    }
+
+    @Name("SA.Run")
+    @Label("Annealing Run")
+    @Category("Simulated Annealing")
+    @Description("A complete Simulated Annealing run")
+    static class RunEvent extends Event {
+        @Label("Cities")
+        int cities;
+        @Label("Iterations")
+        int iterations;
+        @Label("Accepted Moves")
+        int acceptedMoves;
+        @Label("Best Cost")
+        int bestCost;
+        @Label("Stop Reason")
+        String stopReason;
+        @Label("Run Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long executionTime;
+    }
+
+    private TemperatureStepEvent stepEvent;
+    private RunEvent runEvent;
+
+    // Returns true if a flight recording is running. Only looks at the recorder if it has been
+    // initialized (by a recording), so this takes microseconds and loads none of the event classes.
+    static boolean recording() {
+        if (!FlightRecorder.isInitialized()) return false;
+        for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (r.getState() == RecordingState.RUNNING) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onStart(SimulatedAnnealing sa, double averageDistance) {
+        this.runEvent = new RunEvent();
+        this.runEvent.cities = sa.getMatrix().size();
+        this.runEvent.begin();
+        this.stepEvent = new TemperatureStepEvent();
+        this.stepEvent.begin();
+    }
+
+    @Override
+    public void onTemperatureStep(TemperatureStep step) {
+        TemperatureStepEvent event = this.stepEvent;
+        if (event.isEnabled()) {
+            event.end();
+            event.step = step.getStep();
+            event.temperature = step.getTemperature();
+            event.moves = step.getMoves();
+            event.acceptedMoves = step.getAcceptedMoves();
+            event.currentCost = step.getCurrentCost();
+            event.bestCost = step.getBestCost();
+            event.commit();
+            // The next step starts now
+            event = new TemperatureStepEvent();
+            this.stepEvent = event;
+        }
+        event.begin();
+    }
+
+    @Override
+    public void onFinish(AnnealingReport report) {
+        RunEvent event = this.runEvent;
+        if (event.isEnabled()) {
+            AnnealingResult result = report.getResult();
+            event.end();
+            event.iterations = result.getIterations();
+            event.acceptedMoves = result.getAcceptedMoves();
+            event.bestCost = result.getBestCost();
+            event.stopReason = result.getStopReason();
+            event.executionTime = result.getExecutionTime();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package SA;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* Multi-start Simulated Annealing: runs several independent chains concurrently on a fixed
+ * thread pool. Every chain has its own annealer and random generator; the distance matrix is
+ * only read, so it is shared by all of them.
+ */
+public class MultiStartAnnealing {
+
+    private final Distances matrix;
+    private final int chains;
+    private final int threads;
+    private final long seed;
+
+    private double T0;
+    private String decayMethod;
+    private String iterMethod;
+    private CandidateLists candidates;
+    private String operatorSpec;
+    private boolean adaptiveOperators;
+    private String tourRepresentation;
+    private String initialTour;
+    private double targetGap;
+
+    private final List<AnnealingResult> chainResults;
+
+    public MultiStartAnnealing(Distances matrix, int chains) {
+        this(matrix, chains, Runtime.getRuntime().availableProcessors(), new Random().nextLong());
+    }
+
+    public MultiStartAnnealing(Distances matrix, int chains, int threads, long seed) {
+        if (chains < 1) throw new IllegalArgumentException("There must be at least 1 chain.");
+        if (threads < 1) throw new IllegalArgumentException("There must be at least 1 thread.");
+        this.matrix = matrix;
+        this.chains = chains;
+        this.threads = Math.min(threads, chains);
+        this.seed = seed;
+        this.T0 = 0.0;
+        this.decayMethod = null;
+        this.iterMethod = null;
+        this.chainResults = new ArrayList<>();
+    }
+
+    // Set the initial temperature used by every chain
+    public void setInitialTemperature(double initialT0) {
+        this.T0 = initialT0;
+    }
+
+    // Set the temperature decay method used by every chain
+    public void setTemperatureDecayMethod(String decay) {
+        this.decayMethod = decay;
+    }
+
+    // Set the iteration variation method used by every chain
+    public void setIterVariationMethod(String iter) {
+        this.iterMethod = iter;
+    }
+
+    // Set the candidate lists shared by every chain (null = uniform random moves)
+    public void setCandidateLists(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    // Set the move operators used by every chain (see SimulatedAnnealing.setMoveOperators)
+    public void setMoveOperators(String spec, boolean adaptive) {
+        this.operatorSpec = spec;
+        this.adaptiveOperators = adaptive;
+    }
+
+    // Set the tour representation used by every chain (see SimulatedAnnealing.setTourRepresentation)
+    public void setTourRepresentation(String representation) {
+        this.tourRepresentation = representation;
+    }
+
+    // Set how the initial tour of every chain is built (see SimulatedAnnealing.setInitialTour)
+    public void setInitialTour(String method) {
+        this.initialTour = method;
+    }
+
+    // Set the gap to the lower bound at which every chain stops (see SimulatedAnnealing.setTargetGap)
+    public void setTargetGap(double percent) {
+        this.targetGap = percent;
+    }
+
+    // Creates the annealer of one chain with the shared configuration and its own random stream
+    private SimulatedAnnealing createChain(FastRandom stream) {
+        SimulatedAnnealing sa = new SimulatedAnnealing(this.matrix, stream);
+        sa.setVerbose(false);
+        sa.setInitialTemperature(this.T0);
+        sa.setCandidateLists(this.candidates);
+        if (this.operatorSpec != null) sa.setMoveOperators(this.operatorSpec, this.adaptiveOperators);
+        if (this.tourRepresentation != null) sa.setTourRepresentation(this.tourRepresentation);
+        if (this.initialTour != null) sa.setInitialTour(this.initialTour);
+        sa.setTargetGap(this.targetGap);
+        if (this.decayMethod != null) sa.setTemperatureDecayMethod(this.decayMethod);
+        if (this.iterMethod != null) sa.setIterVariationMethod(this.iterMethod);
+        return sa;
+    }
+
+    // Runs all chains and returns the result of the best one
+    public AnnealingResult run() {
+        if (this.matrix.size() < 2) {
+            System.out.println("There must be at least 2 cities.");
+            return null;
+        }
+
+        // Chain streams are split up front from the master seed, so they do not depend on scheduling
+        FastRandom master = new FastRandom(this.seed);
+        List<Callable<AnnealingResult>> tasks = new ArrayList<>(this.chains);
+        for (int c = 0; c < this.chains; c++) {
+            SimulatedAnnealing sa = createChain(master.split());
+            tasks.add(sa::run);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        long start = System.currentTimeMillis();
+        this.chainResults.clear();
+        try {
+            for (Future<AnnealingResult> f : pool.invokeAll(tasks)) {
+                this.chainResults.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multi-start run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A chain failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long end = System.currentTimeMillis();
+
+        AnnealingResult best = this.chainResults.get(0);
+        for (AnnealingResult r : this.chainResults) {
+            if (r.getBestCost() < best.getBestCost()) best = r;
+        }
+
+        System.out.println("\n===== MULTI-START RESULTS =====");
+        System.out.printf("Chains: %d | Threads: %d | Seed: %d%n", this.chains, this.threads, this.seed);
+        System.out.printf("%-8s %-12s %-12s %-12s %-12s %-24s%n",
+                "Chain", "Best Cost", "Iterations", "Acceptance", "Time (ms)", "Stop Criterion");
+        System.out.println("------------------------------------------------------------------------------------");
+        for (int c = 0; c < this.chainResults.size(); c++) {
+            AnnealingResult r = this.chainResults.get(c);
+            System.out.printf("%-8d %-12d %-12d %-12.3f %-12d %-24s%n",
+                    c, r.getBestCost(), r.getIterations(), r.getAcceptanceRate(), r.getExecutionTime(), r.getStopReason());
+        }
+        System.out.printf("%nBest Solution: %s%n", best.getBest().getPath(this.matrix));
+        System.out.println("Best Cost: " + best.getBestCost());
+        System.out.println("Wall-clock Time: " + (end - start) + " ms");
+
+        return best;
+    }
+
+    // Returns the results of every chain of the last run, in chain order
+    public List<AnnealingResult> getChainResults() {
+        return Collections.unmodifiableList(this.chainResults);
+    }
+}
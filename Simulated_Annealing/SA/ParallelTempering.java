@@ -0,0 +1,227 @@
+package SA;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import Solutions.Solution;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* Parallel tempering (replica exchange): a ladder of replicas is kept at fixed temperatures
+ * instead of cooling a single chain. Each round every replica performs a number of 2-opt
+ * Metropolis moves in its own thread, then adjacent replicas try to swap their solutions with
+ * the exchange criterion min(1, exp((1/Tk - 1/Tk+1) * (Ek - Ek+1))), so that good solutions
+ * move down to the cold end while hot replicas keep exploring.
+ */
+public class ParallelTempering {
+
+    // Ratios of the worsening moves accepted at the hottest and at the coldest temperature of the automatic ladder
+    private static final double HOT_ACCEPTANCE = 0.5;
+    private static final double COLD_ACCEPTANCE = 0.001;
+
+    private final Distances matrix;
+    private final int replicas;
+    private final int threads;
+    private final long seed;
+
+    private double minTemp;
+    private double maxTemp;
+    private int movesPerExchange;
+    private int exchangeRounds;
+    private CandidateLists candidates;
+    private String operatorSpec;
+    private boolean adaptiveOperators;
+    private String tourRepresentation;
+    private String initialTour;
+
+    // Temperatures of the ladder, from coldest (index 0) to hottest
+    private double[] temperatures;
+
+    // Exchange statistics between temperatures k and k+1
+    private long[] swapAttempts;
+    private long[] swapAccepted;
+
+    public ParallelTempering(Distances matrix, int replicas) {
+        this(matrix, replicas, Runtime.getRuntime().availableProcessors(), new Random().nextLong());
+    }
+
+    public ParallelTempering(Distances matrix, int replicas, int threads, long seed) {
+        if (replicas < 2) throw new IllegalArgumentException("There must be at least 2 replicas.");
+        if (threads < 1) throw new IllegalArgumentException("There must be at least 1 thread.");
+        this.matrix = matrix;
+        this.replicas = replicas;
+        this.threads = Math.min(threads, replicas);
+        this.seed = seed;
+        this.minTemp = 0.0;
+        this.maxTemp = 0.0;
+        this.movesPerExchange = 0;
+        this.exchangeRounds = 0;
+    }
+
+    // Set the temperature range of the ladder (0.0 = automatically calculated)
+    public void setTemperatureRange(double minTemp, double maxTemp) {
+        this.minTemp = minTemp;
+        this.maxTemp = maxTemp;
+    }
+
+    // Set the number of moves each replica performs between two exchange attempts
+    public void setMovesPerExchange(int moves) {
+        this.movesPerExchange = moves;
+    }
+
+    // Set the number of exchange rounds of a run
+    public void setExchangeRounds(int rounds) {
+        this.exchangeRounds = rounds;
+    }
+
+    // Set the candidate lists shared by every replica (null = uniform random moves)
+    public void setCandidateLists(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    // Set the move operators used by every replica (see SimulatedAnnealing.setMoveOperators)
+    public void setMoveOperators(String spec, boolean adaptive) {
+        this.operatorSpec = spec;
+        this.adaptiveOperators = adaptive;
+    }
+
+    // Set the tour representation used by every replica (see SimulatedAnnealing.setTourRepresentation)
+    public void setTourRepresentation(String representation) {
+        this.tourRepresentation = representation;
+    }
+
+    // Set how the initial tour of every replica is built (see SimulatedAnnealing.setInitialTour)
+    public void setInitialTour(String method) {
+        this.initialTour = method;
+    }
+
+    // Automatically adjust the parameters that were not given, calibrating the temperatures on moves
+    // sampled from an initial solution like SimulatedAnnealing does
+    private void autoAdjustParameters(SimulatedAnnealing chain, Solution initial) {
+        int n = this.matrix.size();
+        if (this.maxTemp == 0.0) this.maxTemp = chain.calibrateTemperature(initial, HOT_ACCEPTANCE);
+        if (this.minTemp == 0.0) this.minTemp = chain.calibrateTemperature(initial, COLD_ACCEPTANCE);
+        if (this.maxTemp == 0.0) this.maxTemp = SimulatedAnnealing.averageDistance(this.matrix) * 10.0; // no worsening moves
+        if (this.minTemp == 0.0 || this.minTemp >= this.maxTemp) this.minTemp = this.maxTemp / 1000.0;
+        if (this.movesPerExchange == 0) this.movesPerExchange = Math.max(100, n * 20);
+        // Every replica gets the move budget of one SimulatedAnnealing chain
+        if (this.exchangeRounds == 0) this.exchangeRounds = Math.max(1, Math.max(1000, n * 5000) / this.movesPerExchange);
+
+        // Geometric ladder: constant ratio between adjacent temperatures
+        this.temperatures = new double[this.replicas];
+        double ratio = Math.pow(this.maxTemp / this.minTemp, 1.0 / (this.replicas - 1));
+        for (int k = 0; k < this.replicas; k++) {
+            this.temperatures[k] = this.minTemp * Math.pow(ratio, k);
+        }
+    }
+
+    // Runs the replicas and returns the best solution found by any of them
+    public AnnealingResult run() {
+        if (this.matrix.size() < 2) {
+            System.out.println("There must be at least 2 cities.");
+            return null;
+        }
+
+        this.swapAttempts = new long[this.replicas - 1];
+        this.swapAccepted = new long[this.replicas - 1];
+
+        // One annealer per replica, each with its own random stream split from the master seed
+        FastRandom master = new FastRandom(this.seed);
+        SimulatedAnnealing[] chains = new SimulatedAnnealing[this.replicas];
+        Solution[] states = new Solution[this.replicas]; // states[k] is at temperatures[k]
+        Solution[] bests = new Solution[this.replicas];  // best seen by the replica running in slot k
+        for (int k = 0; k < this.replicas; k++) {
+            chains[k] = new SimulatedAnnealing(this.matrix, master.split());
+            chains[k].setVerbose(false);
+            chains[k].setCandidateLists(this.candidates);
+            if (this.operatorSpec != null) chains[k].setMoveOperators(this.operatorSpec, this.adaptiveOperators);
+            if (this.tourRepresentation != null) chains[k].setTourRepresentation(this.tourRepresentation);
+            if (this.initialTour != null) chains[k].setInitialTour(this.initialTour);
+            states[k] = chains[k].createInitialSolution();
+            bests[k] = new Solution(states[k]);
+        }
+        FastRandom exchangeRng = master.split();
+        autoAdjustParameters(chains[0], states[0]);
+
+        long acceptedMoves = 0;
+        long[] accepted = new long[this.replicas];
+        List<Callable<Void>> tasks = new ArrayList<>(this.replicas);
+        for (int k = 0; k < this.replicas; k++) {
+            final int slot = k;
+            tasks.add(() -> {
+                accepted[slot] = chains[slot].metropolis(states[slot], bests[slot], this.temperatures[slot], this.movesPerExchange);
+                return null;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        long start = System.currentTimeMillis();
+        try {
+            for (int round = 0; round < this.exchangeRounds; round++) {
+                // Metropolis moves of all replicas in parallel
+                for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+                for (int k = 0; k < this.replicas; k++) acceptedMoves += accepted[k];
+
+                // Exchange adjacent pairs, alternating even and odd pairs each round
+                for (int k = round % 2; k < this.replicas - 1; k += 2) {
+                    this.swapAttempts[k]++;
+                    double exponent = (1.0 / this.temperatures[k] - 1.0 / this.temperatures[k + 1])
+                            * (states[k].getCost() - states[k + 1].getCost());
+                    if (exponent >= 0 || exchangeRng.nextDouble() < Math.exp(exponent)) {
+                        Solution tmp = states[k];
+                        states[k] = states[k + 1];
+                        states[k + 1] = tmp;
+                        this.swapAccepted[k]++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel tempering interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A replica failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long end = System.currentTimeMillis();
+
+        int bestSlot = 0;
+        for (int k = 1; k < this.replicas; k++) {
+            if (bests[k].getCost() < bests[bestSlot].getCost()) bestSlot = k;
+        }
+        Solution best = bests[bestSlot];
+        long iterations = (long) this.exchangeRounds * this.movesPerExchange * this.replicas;
+
+        System.out.println("\n===== PARALLEL TEMPERING RESULTS =====");
+        System.out.printf("Replicas: %d | Threads: %d | Rounds: %d | Moves/Exchange: %d | Seed: %d%n",
+                this.replicas, this.threads, this.exchangeRounds, this.movesPerExchange, this.seed);
+        System.out.printf("%-24s %-12s %-12s %-12s%n", "Temperature Pair", "Attempts", "Accepted", "Rate");
+        System.out.println("------------------------------------------------------------");
+        for (int k = 0; k < this.replicas - 1; k++) {
+            System.out.printf("%-24s %-12d %-12d %-12.3f%n",
+                    String.format("%.2f <-> %.2f", this.temperatures[k], this.temperatures[k + 1]),
+                    this.swapAttempts[k], this.swapAccepted[k], getSwapAcceptanceRates()[k]);
+        }
+        System.out.printf("%nBest Solution: %s%n", best.getPath(this.matrix));
+        System.out.println("Best Cost: " + best.getCost());
+        System.out.println("Total Iterations: " + iterations);
+        System.out.println("Execution Time: " + (end - start) + " ms");
+
+        int totalMoves = (int) Math.min(iterations, Integer.MAX_VALUE);
+        return new AnnealingResult(best, totalMoves, (int) Math.min(acceptedMoves, Integer.MAX_VALUE), totalMoves,
+                this.temperatures[bestSlot], end - start, "exchange rounds");
+    }
+
+    // Returns the temperatures of the ladder, from coldest to hottest
+    public double[] getTemperatures() {
+        return this.temperatures.clone();
+    }
+
+    // Returns, for each pair of adjacent temperatures (k, k+1), the ratio of accepted exchanges
+    public double[] getSwapAcceptanceRates() {
+        double[] rates = new double[this.swapAttempts.length];
+        for (int k = 0; k < rates.length; k++) {
+            rates[k] = this.swapAttempts[k] == 0 ? 0.0 : (double) this.swapAccepted[k] / this.swapAttempts[k];
+        }
+        return rates;
+    }
+}
@@ -1,51 +1,323 @@
 package SA;
 
-import distanceMatrix.DistanceMatrix;
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import distanceMatrix.HeldKarpBound;
+import Solutions.ArrayTour;
 import Solutions.Solution;
+import Solutions.TwoLevelTour;
+import moves.OperatorSelector;
+import java.io.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class SimulatedAnnealing {
 
-    private final DistanceMatrix matrix;
-    private final List<String> cities;
+    private final Distances matrix;
 
     private double T0;
     private double alpha;
+    private double linearStep;
+    private double gradualBeta;
+    private double logarithmicConstant;
     private double minTemp;
     private int iterPerTemp;
     private int maxIter;
+    private int noImprovementLimit;
+    private double minAcceptanceRate;
     private String decayMethod;
     private String iterMethod;
 
-    // Temperature Decay Constants
-    private final static double GRADUAL_BETA = 0.001;
-    private final static int LOGARITHMIC_CONSTANT = 275;
-
     // Stopping criteria Constants
+    // Stagnation is counted in rejected moves since the last new best: at least NO_IMPROVEMENT_LIMIT,
+    // and at least NO_IMPROVEMENT_STEPS temperature steps, so that a long schedule is not cut short.
+    // It is only counted in the cold half of the schedule (below the geometric mean of T0 and the
+    // minimum temperature): higher up the chain moves away from its best on purpose, and a run from
+    // a good tour may need most of the schedule to beat it.
     private final static int NO_IMPROVEMENT_LIMIT = 5000;
+    private final static int NO_IMPROVEMENT_STEPS = 5;
     private final static double MIN_ACCEPTANCE_RATE = 0.01;
+    private final static int MIN_ACCEPTANCE_MOVES = 1000; // moves before the acceptance rate is meaningful
+
+    // Calibration of the schedule: moves sampled on the initial solution, and the ratio of
+    // worsening moves accepted at the minimum temperature
+    private final static int CALIBRATION_SAMPLES = 2000;
+    private final static double FINAL_ACCEPTANCE = 0.001;
+
+    // Ratio of worsening moves accepted at the automatic T0 from a random tour, and from a
+    // constructed one (a high temperature would only scramble the good edges it starts with)
+    private final static double RANDOM_START_ACCEPTANCE = 0.5;
+    private final static double CONSTRUCTED_START_ACCEPTANCE = 0.1;
+
+    // Candidates per city used to build a starting tour when the moves use none
+    private final static int CONSTRUCTION_CANDIDATES = 10;
+
+    // Re-optimization: ratio of worsening moves accepted at the automatic T0 from the repaired
+    // tour, and how far along the tour (in cities) the moves reach around each changed city
+    private final static double WARM_START_ACCEPTANCE = 0.02;
+    private final static int FOCUS_RADIUS = 5;
+
+    // Above this number of city pairs the average distance is estimated from a sample
+    private final static long MAX_AVERAGE_PAIRS = 1_000_000;
+
+    // From this number of cities on, "auto" uses the two-level list tour instead of the array tour
+    private final static int TWO_LEVEL_MIN_CITIES = 5_000;
+
+    // With a time budget, the temperature steps are sized for about this many steps over the budget
+    private final static int TIMED_STEPS = 500;
+    private final static int MIN_TIMED_STEP_MOVES = 1024;
+
+    // Below exp(-37) ~ 2^-53 a worsening move can never be accepted: nextDouble() is a multiple of 2^-53
+    private final static double MAX_ACCEPT_EXPONENT = 37.0;
+
+    // Calibration targets: ratio of worsening moves accepted at T0 (0 = from the initial tour),
+    // and iteration budget (0 = automatic)
+    private double initialAcceptance;
+    private int iterationBudget;
+
+    // Random generator of this chain
+    private final FastRandom rng;
+
+    // Acceptance test of the current temperature: 1/T and the smallest delta that is always rejected
+    private double inverseTemp;
+    private double rejectDelta;
+
+    // Print progress and results to the console (through a ConsoleListener)
+    private boolean verbose;
+
+    // Observers of the runs, and the counters other threads can read during a run
+    private final List<AnnealingListener> listeners;
+    private final AnnealingMetrics metrics;
+
+    // Stop criterion that ended the last run
+    private String stopReason;
+
+    // Nearest-neighbor candidates of each city, null for uniform random moves
+    private CandidateLists candidates;
+
+    // Move operators: specification, selection mode, per-chain instances and last one used
+    private String operatorSpec;
+    private boolean adaptiveOperators;
+    private OperatorSelector operators;
+    private int lastOperator;
+
+    // Tour representation: "array", "twolevel" or "auto" (chosen from the number of cities)
+    private String tourRepresentation;
+
+    // How the initial tour is built (see InitialTours)
+    private String initialTour;
+
+    // Warm start of reoptimize(): the tour to start from, and the cities the moves start from (null = none)
+    private int[] warmTour;
+    private int[] focus;
+
+    // Time budget of solve(): when it started and its length in nanoseconds (0 = no time budget)
+    private long budgetStart;
+    private long budgetNanos;
+
+    // Hard limit on the wall-clock time of a run whatever its schedule (0 = none), and when the run started
+    private long timeLimitNanos;
+    private long limitStart;
+
+    // Gap stop criterion: target gap to the lower bound in percent (0 = off), the bound (computed in
+    // the background while the run starts) and the cost that ends the run once it is known (-1 = not yet)
+    private double targetGap;
+    private CompletableFuture<HeldKarpBound> lowerBound;
+    private long targetCost;
+
+    // Tour offered by another thread for the run in progress (see offerSolution), null if none
+    private final AtomicReference<int[]> offered;
 
-    // Shared random generator
-    private final Random rng;
+    // Periodic checkpoints of the run: file (null = none) and minimum time between two of them
+    private String checkpointFile;
+    private long checkpointInterval;
 
-    public SimulatedAnnealing(DistanceMatrix matrix) {
+    public SimulatedAnnealing(Distances matrix) {
+        this(matrix, new Random().nextLong());
+    }
+
+    // Creates an annealer with its own seeded random generator, so independent chains never share one
+    public SimulatedAnnealing(Distances matrix, long seed) {
+        this(matrix, new FastRandom(seed));
+    }
+
+    // Creates an annealer that draws from the given generator, e.g. a stream split from a master
+    // generator (FastRandom.split). The generator must not be used by anything else while the annealer runs.
+    public SimulatedAnnealing(Distances matrix, FastRandom rng) {
         this.matrix = matrix;
-        this.cities = matrix.getCities();
-        this.decayMethod = null;
-        this.iterMethod = null;
+        this.decayMethod = "geometric";
+        this.iterMethod = "constant";
         this.T0 = 0.0;
         this.alpha = 0.0;
         this.minTemp = 0.0;
         this.iterPerTemp = 0;
         this.maxIter = 0;
-        this.rng = new Random();
+        this.initialAcceptance = 0.0;
+        this.iterationBudget = 0;
+        this.rng = rng;
+        this.verbose = true;
+        this.operatorSpec = "2opt";
+        this.adaptiveOperators = false;
+        this.tourRepresentation = "auto";
+        this.initialTour = "random";
+        this.listeners = new ArrayList<>();
+        this.metrics = new AnnealingMetrics();
+        this.offered = new AtomicReference<>();
+    }
+
+    // Use candidate lists for the moves (null = pick the cities uniformly at random).
+    // The lists are only read, so the same ones can be shared by several annealers.
+    public void setCandidateLists(CandidateLists candidates) {
+        this.candidates = candidates;
+        this.operators = null;
+    }
+
+    // Set the move operators and their weights, e.g. "2opt:5,oropt:3,swap:1,or3opt:1" (see OperatorSelector).
+    // With adaptive selection the weights are only the starting point and follow the operators' success.
+    public void setMoveOperators(String spec, boolean adaptive) {
+        OperatorSelector.parse(spec, null, adaptive); // validate now rather than at the start of the run
+        this.operatorSpec = spec;
+        this.adaptiveOperators = adaptive;
+        this.operators = null;
+    }
+
+    // Set the tour representation: "array" (array reversal, fastest on small instances),
+    // "twolevel" (two-level doubly-linked list, O(sqrt n) per 2-opt move) or "auto"
+    public void setTourRepresentation(String representation) {
+        if (!representation.equals("array") && !representation.equals("twolevel") && !representation.equals("auto")) {
+            throw new IllegalArgumentException("Unknown tour representation: " + representation);
+        }
+        this.tourRepresentation = representation;
+    }
+
+    // Set how the initial tour is built: "random", "nearest" (nearest neighbor), "greedy" (greedy
+    // edge matching) or "spacefill" (Hilbert curve, coordinate instances only). Constructed tours
+    // start at a lower automatic temperature than random ones.
+    public void setInitialTour(String method) {
+        if (!InitialTours.supports(method, this.matrix)) {
+            throw new IllegalArgumentException("The initial tour " + method + " needs city coordinates");
+        }
+        this.initialTour = method;
+    }
+
+    // Write a checkpoint of the run to a file at most every intervalMillis milliseconds (null = no checkpoints).
+    // Checkpoints are taken between two temperature steps and written by a background thread; resume()
+    // continues a run from the last one.
+    public void setCheckpoint(String file, long intervalMillis) {
+        if (file != null && intervalMillis < 0) throw new IllegalArgumentException("The checkpoint interval cannot be negative.");
+        this.checkpointFile = file;
+        this.checkpointInterval = intervalMillis;
+    }
+
+    // Stop every run after at most the given wall-clock time (null = no limit), counted from the start of
+    // the annealing. Unlike the time budget of solve() it does not change the schedule: the run simply
+    // ends early, with the stop reason "time limit". Used to bound the runs of the solver service.
+    public void setTimeLimit(Duration limit) {
+        if (limit != null && limit.isNegative()) throw new IllegalArgumentException("The time limit cannot be negative.");
+        this.timeLimitNanos = limit == null ? 0 : Math.max(1, limit.toNanos());
     }
 
-    // Generate initial solution (random permutation)
-    private Solution createInitialSolution() {
-        ArrayList<String> sol = new ArrayList<>(this.cities);
-        Collections.shuffle(sol, this.rng);
-        Solution s = new Solution(sol);
+    // Stop as soon as the best tour is within the given percentage of the Held-Karp lower bound of
+    // the instance (0 = never). The bound is computed once per instance, in the background during the
+    // first run that needs it, so the criterion only applies once it is known; it is then reported
+    // with the results. Only a proven bound is used (HeldKarpBound.isExact): on instances too large
+    // to prove one the criterion never applies.
+    public void setTargetGap(double percent) {
+        if (percent < 0) throw new IllegalArgumentException("The target gap cannot be negative.");
+        this.targetGap = percent;
+    }
+
+    // Offers a tour found elsewhere (e.g. by another island of an IslandCoordinator) to the run in
+    // progress, as city indices in tour order. Safe to call from any thread: the run takes it at the
+    // end of the current temperature step and continues from it if it is shorter than its current
+    // tour (only the last offer of a step counts). Offers made when no run is in progress are dropped
+    // by the next run.
+    public void offerSolution(int[] order) {
+        int n = this.matrix.size();
+        if (order.length != n) throw new IllegalArgumentException("The tour has " + order.length + " cities, the instance " + n);
+        boolean[] seen = new boolean[n];
+        for (int c : order) {
+            if (c < 0 || c >= n || seen[c]) throw new IllegalArgumentException("The tour is not a permutation of the cities");
+            seen[c] = true;
+        }
+        this.offered.set(order.clone());
+    }
+
+    // Turn console output on or off (off for chains running in parallel)
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // Add an observer of the runs (called from the thread running the annealer)
+    public void addListener(AnnealingListener listener) {
+        this.listeners.add(listener);
+    }
+
+    // Remove an observer added with addListener
+    public void removeListener(AnnealingListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    // Returns the live counters of the current (or last) run, safe to read from any thread
+    public AnnealingMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    // Returns the distance matrix of the annealer
+    public Distances getMatrix() {
+        return this.matrix;
+    }
+
+    // Returns the initial temperature (automatically calculated at the start of a run if it was not set)
+    public double getInitialTemperature() {
+        return this.T0;
+    }
+
+    // Returns the cooling factor of the geometric decay
+    public double getAlpha() {
+        return this.alpha;
+    }
+
+    // Returns the minimum temperature
+    public double getMinTemperature() {
+        return this.minTemp;
+    }
+
+    // Returns the number of iterations per temperature
+    public int getIterationsPerTemperature() {
+        return this.iterPerTemp;
+    }
+
+    // Returns the maximum number of iterations
+    public int getMaxIterations() {
+        return this.maxIter;
+    }
+
+    // Returns the temperature decay method
+    public String getTemperatureDecayMethod() {
+        return this.decayMethod;
+    }
+
+    // Returns the iteration variation method
+    public String getIterVariationMethod() {
+        return this.iterMethod;
+    }
+
+    // Generate initial solution (random permutation or constructed tour, see setInitialTour)
+    Solution createInitialSolution() {
+        int[] sol;
+        if (this.warmTour != null) {
+            sol = this.warmTour.clone();
+        } else {
+            boolean needsLists = this.initialTour.equals("nearest") || this.initialTour.equals("greedy");
+            sol = InitialTours.build(this.initialTour, this.matrix, needsLists ? constructionCandidates() : null, this.rng);
+        }
+        boolean twoLevel = this.tourRepresentation.equals("twolevel")
+                || (this.tourRepresentation.equals("auto") && sol.length >= TWO_LEVEL_MIN_CITIES);
+        Solution s = new Solution(twoLevel ? new TwoLevelTour(sol) : new ArrayTour(sol));
         s.evaluate(this.matrix);
         return s;
     }
@@ -55,74 +327,195 @@ public class SimulatedAnnealing {
         this.T0 = initialT0;
     }
 
-    // Automatically adjust parameters based on the problem size
-    private void autoAdjustParameters() {
-        int n = this.cities.size();
+    // Set the ratio of worsening moves the automatic initial temperature accepts (0 < ratio < 1).
+    // By default it is 0.5 from a random tour and 0.1 from a constructed one.
+    public void setInitialAcceptance(double ratio) {
+        if (!(ratio > 0.0 && ratio < 1.0)) throw new IllegalArgumentException("The acceptance ratio must be between 0 and 1.");
+        this.initialAcceptance = ratio;
+    }
+
+    // Set the iteration budget of a run (0 = automatic, 5000 per city). The geometric cooling
+    // factor is chosen so that the temperature reaches its minimum when the budget is spent.
+    public void setMaxIterations(int iterations) {
+        if (iterations < 0) throw new IllegalArgumentException("The iteration budget cannot be negative.");
+        this.iterationBudget = iterations;
+    }
+
+    // Automatically adjust parameters based on the problem size and on a sample of the moves
+    // from the initial solution. Returns the average distance.
+    private double autoAdjustParameters(Solution initial) {
+        int n = this.matrix.size();
+
+        double avgDist = averageDistance(this.matrix);
+
+        this.iterPerTemp = baseIterationsPerTemp();
+        this.noImprovementLimit = Math.max(NO_IMPROVEMENT_LIMIT, NO_IMPROVEMENT_STEPS * this.iterPerTemp);
+        this.maxIter = this.iterationBudget > 0 ? this.iterationBudget : Math.max(1000, activeCities() * 5000);
 
-        double avgDist = averageDistance();
+        // Worsening deltas of the moves the run will propose, sorted
+        int[] deltas = sampleWorseningDeltas(initial);
 
         // Checks whether the initial temperature (T0) was provided by the user.
-        // If not (T0 == 0.0), it is automatically calculated based on the average distance.
-        if (this.T0 == 0.0) this.T0 = avgDist * 10.0;
+        // If not (T0 == 0.0), it is the temperature that accepts the target ratio of worsening moves.
+        if (deltas.length == 0) {
+            // Every sampled move improves or keeps the cost (tiny instances): scale of the distances
+            if (this.T0 == 0.0) this.T0 = avgDist * 10.0;
+            this.minTemp = this.T0 / 1000.0;
+        } else {
+            if (this.T0 == 0.0) this.T0 = temperatureForAcceptance(deltas, initialAcceptance());
+            // At the minimum temperature even the smallest sampled worsening moves are rarely accepted
+            this.minTemp = temperatureForAcceptance(deltas, FINAL_ACCEPTANCE);
+            if (this.minTemp >= this.T0) this.minTemp = this.T0 / 1000.0;
+        }
+
+        // Geometric cooling from T0 to minTemp in the temperature steps of the budget
+        this.alpha = Math.pow(this.minTemp / this.T0, 1.0 / scheduleSteps());
+        deriveDecayConstants();
+        return avgDist;
+    }
 
-        this.minTemp = this.T0 / 1000.0;
+    // Private: number of temperature steps of the iteration budget
+    private double scheduleSteps() {
+        return Math.max(1.0, (double) this.maxIter / baseIterationsPerTemp());
+    }
 
-        if (n <= 7) this.alpha = 0.8;
-        else if (n <= 14) this.alpha = 0.9;
-        else this.alpha = 0.995;
+    // Private: the constants of the other decay methods, so that they also go from T0 to minTemp
+    // over the iteration budget: the same decrement every step (linear), the same increment of 1/T
+    // every step (gradual), or T0 - c * ln(iteration) reaching minTemp at the last iteration (logarithmic)
+    private void deriveDecayConstants() {
+        double steps = scheduleSteps();
+        this.linearStep = (this.T0 - this.minTemp) / steps;
+        this.gradualBeta = (1.0 / this.minTemp - 1.0 / this.T0) / steps;
+        this.logarithmicConstant = (this.T0 - this.minTemp) / Math.log(Math.max(2, this.maxIter));
+    }
 
-        this.iterPerTemp = Math.max(100, n * 20);
-        this.maxIter = Math.max(1000, n * 5000);
+    // Returns the temperature that accepts the given ratio of the worsening moves sampled from a
+    // solution, or 0.0 if no sampled move makes it worse. Used by ParallelTempering for its ladder.
+    double calibrateTemperature(Solution s, double acceptance) {
+        int[] deltas = sampleWorseningDeltas(s);
+        return deltas.length == 0 ? 0.0 : temperatureForAcceptance(deltas, acceptance);
+    }
 
-        System.out.println("\n==== Automatically Adjusted Parameters ====");
-        System.out.printf("Cities: %d | Avg. Distance: %.2f%n", n, avgDist);
-        System.out.printf("T0 = %.2f | alpha = %.4f | minTemp = %.4f%n", this.T0, this.alpha, this.minTemp);
-        System.out.printf("Iterations/Temp = %d | Max Iterations = %d%n", this.iterPerTemp, this.maxIter);
+    // Private: ratio of worsening moves accepted at the automatic T0
+    private double initialAcceptance() {
+        if (this.initialAcceptance > 0.0) return this.initialAcceptance;
+        if (this.warmTour != null) return WARM_START_ACCEPTANCE;
+        return this.initialTour.equals("random") ? RANDOM_START_ACCEPTANCE : CONSTRUCTED_START_ACCEPTANCE;
     }
 
-    // Calculates the average distance between all cities
-    private double averageDistance() {
-        int n = this.cities.size();
+    // Private: number of iterations per temperature before any variation
+    private int baseIterationsPerTemp() {
+        return Math.max(100, activeCities() * 20);
+    }
+
+    // Private: number of cities the moves start from, which sizes the schedule
+    private int activeCities() {
+        return this.focus == null ? this.matrix.size() : this.focus.length;
+    }
+
+    // Private: the candidate lists of the moves, or lists built for constructing tours if the moves use none
+    private CandidateLists constructionCandidates() {
+        return this.candidates != null ? this.candidates : CandidateLists.build(this.matrix, CONSTRUCTION_CANDIDATES);
+    }
+
+    // Private: proposes moves from a solution without applying them and returns the positive deltas, sorted
+    private int[] sampleWorseningDeltas(Solution s) {
+        int[] deltas = new int[CALIBRATION_SAMPLES];
+        int count = 0;
+        for (int k = 0; k < CALIBRATION_SAMPLES; k++) {
+            int delta = neighbor(s);
+            if (delta > 0) deltas[count++] = delta;
+        }
+        deltas = Arrays.copyOf(deltas, count);
+        Arrays.sort(deltas);
+        return deltas;
+    }
+
+    // Private: the temperature at which the average Metropolis acceptance exp(-delta/T) of the
+    // given positive deltas equals the target ratio (bisection, the average grows with T)
+    private static double temperatureForAcceptance(int[] deltas, double target) {
+        double lo = deltas[0] * 1e-3, hi = deltas[deltas.length - 1] * 1e3;
+        for (int i = 0; i < 100 && hi - lo > 1e-9 * hi; i++) {
+            double T = Math.sqrt(lo * hi); // geometric middle, the range spans several orders of magnitude
+            double sum = 0;
+            for (int d : deltas) sum += Math.exp(-d / T);
+            if (sum / deltas.length < target) lo = T;
+            else hi = T;
+        }
+        return Math.sqrt(lo * hi);
+    }
+
+    // Calculates the average distance between all cities (estimated from a fixed
+    // random sample of pairs on large instances, where distances may be computed on demand)
+    static double averageDistance(Distances matrix) {
+        int n = matrix.size();
         if (n < 2) return 0.0;
         double total = 0;
+        if ((long) n * (n - 1) / 2 > MAX_AVERAGE_PAIRS) {
+            Random sample = new Random(n);
+            for (int k = 0; k < MAX_AVERAGE_PAIRS; k++) {
+                int i = sample.nextInt(n);
+                int j = sample.nextInt(n - 1);
+                total += matrix.distance(i, j < i ? j : j + 1); // j != i
+            }
+            return total / MAX_AVERAGE_PAIRS;
+        }
         int count = 0;
         for (int i = 0; i < n; i++) {
             for (int j = i + 1; j < n; j++) {
-                total += this.matrix.distance(this.cities.get(i), this.cities.get(j));
+                total += matrix.distance(i, j);
                 count++; // Count number of city pairs considered
             }
         }
         return total / count;
     }
 
-    // Generates a neighbor solution using the 2-opt swap using delta cost
-    private Solution neighbor(Solution current) {
-        ArrayList<String> path = new ArrayList<>(current.getPath());
-        int n = path.size();
+    // Proposes a neighbor of the current solution with one of the move operators and returns
+    // its delta cost. The move is only remembered, it is applied by applyNeighbor() if accepted.
+    private int neighbor(Solution current) {
+        if (this.operators == null) {
+            this.operators = OperatorSelector.parse(this.operatorSpec, this.candidates, this.adaptiveOperators);
+        }
+        this.lastOperator = this.operators.select(this.rng);
+        return this.operators.get(this.lastOperator).propose(current, this.matrix, this.rng);
+    }
 
-        // Pick two random non-consecutive indices i < j
-        int i = this.rng.nextInt(n - 1);
-        int j = i + 1 + this.rng.nextInt(n - i - 1);
+    // Applies the last proposed move in place (e.g. 2-opt: reverse the path between the two removed edges)
+    private void applyNeighbor(Solution current, int delta) {
+        this.operators.get(this.lastOperator).apply(current, delta);
+    }
 
-        // Calculate the delta cost for the 2-opt swap
-        int a = i;
-        int b = i + 1;
-        int c = j;
-        int d = (j + 1) % n; // wrap around to the first city if j is the last
-        // delta = (new edges) - (old edges)
-        int delta = matrix.distance(path.get(a), path.get(c))
-                + matrix.distance(path.get(b), path.get(d))
-                - matrix.distance(path.get(a), path.get(b))
-                - matrix.distance(path.get(c), path.get(d));
+    // Prepares the acceptance test for temperature T, once per temperature instead of once per move
+    private void setAcceptanceTemperature(double T) {
+        this.inverseTemp = 1.0 / T;
+        this.rejectDelta = MAX_ACCEPT_EXPONENT * T;
+    }
 
-        // Apply the 2-opt move: reverse the segment between i+1 and j (inclusive)
-        // Example: [A, B, C, D, E, F], i=1, j=4 → [A, B, E, D, C, F]
-        Collections.reverse(path.subList(i + 1, j + 1));
+    // Acceptance criterion (Metropolis):
+    // accept if neighbor is not worse (delta <= 0, exp(0) = 1 accepts always) or with probability exp(-delta/T).
+    // Deltas that are too large to ever pass are rejected without drawing a random number.
+    private boolean accept(int delta) {
+        if (delta <= 0) return true;
+        if (delta >= this.rejectDelta) return false;
+        return this.rng.nextDouble() < Math.exp(-delta * this.inverseTemp);
+    }
 
-        // Create new solution with updated cost using delta
-        Solution newSol = new Solution(path);
-        newSol.setCost(current.getCost() + delta);
-        return newSol;
+    // Performs a number of moves at a fixed temperature on the given solution, updating
+    // best whenever it improves. Used by the replicas of ParallelTempering. Returns the accepted moves.
+    int metropolis(Solution current, Solution best, double T, int moves) {
+        int accepted = 0;
+        setAcceptanceTemperature(T);
+        for (int k = 0; k < moves; k++) {
+            int delta = neighbor(current);
+            boolean ok = accept(delta);
+            if (ok) {
+                applyNeighbor(current, delta);
+                accepted++;
+                if (current.getCost() < best.getCost()) best.copyFrom(current);
+            }
+            this.operators.update(this.lastOperator, delta, ok);
+        }
+        return accepted;
     }
 
     // Set temperature decay method that was given by the user
@@ -134,13 +527,13 @@ public class SimulatedAnnealing {
     private double decayTemperature(double T, int iteration, String method) {
         switch (method.toLowerCase()) {
             case "linear":
-                return T - this.minTemp;
+                return T - this.linearStep;
             case "gradual":
                 // Gradual cooling formula: Tk = Tk-1 / (1 + beta * Tk-1)
-                return T / (1 + GRADUAL_BETA * T);
+                return T / (1 + this.gradualBeta * T);
             case "logarithmic":
                 // As decay only happens after initial iterations per temperature, iteration will always be > 0, avoiding log(0)
-                return this.T0 - LOGARITHMIC_CONSTANT * Math.log(iteration);
+                return this.T0 - this.logarithmicConstant * Math.log(iteration);
             case "geometric":
             default:
                 return T * this.alpha; // geometric = default = geometric decay
@@ -167,149 +560,577 @@ public class SimulatedAnnealing {
         }
     }
 
-    // Check if any stop criterion has been met
-    private boolean stopCriterionMethod(double T, int iteration, int acceptedMoves, int totalMoves, int noImprovementCount) {
+    // Check if any stop criterion has been met, recording which one in stopReason
+    private boolean stopCriterionMethod(double T, int iteration, int acceptedMoves, int totalMoves, int noImprovementCount,
+                                        int bestCost) {
         double acceptance_rate = (double) acceptedMoves / totalMoves;
-        if (T <= this.minTemp) {
-            System.out.println("\n===== STOP CRITERION =====");
-            System.out.printf("Minimum Temperature Reached: %-12.3f%n", T);
+        if (gapReached(bestCost)) {
+            this.stopReason = "lower bound gap";
+            return true;
+        } else if (this.budgetNanos > 0 && (T <= this.minTemp || System.nanoTime() - this.budgetStart >= this.budgetNanos)) {
+            this.stopReason = "time budget";
+            return true;
+        } else if (this.timeLimitNanos > 0 && System.nanoTime() - this.limitStart >= this.timeLimitNanos) {
+            this.stopReason = "time limit";
+            return true;
+        } else if (T <= this.minTemp) {
+            this.stopReason = "minimum temperature";
             return true;
         } else if (iteration == this.maxIter) {
-            System.out.println("\n===== STOP CRITERION =====");
-            System.out.println("Maximum Iteration Reached: " + iteration);
+            this.stopReason = "maximum iterations";
             return true;
-        } else if (acceptance_rate < MIN_ACCEPTANCE_RATE) {
-            System.out.println("\n===== STOP CRITERION =====");
-            System.out.println("Accepted Moves: " + acceptedMoves);
-            System.out.println("Total Moves: " + totalMoves);
-            System.out.printf("Acceptance Rate: %-12.3f%n", acceptance_rate);
+        } else if (acceptance_rate < this.minAcceptanceRate && totalMoves >= MIN_ACCEPTANCE_MOVES) {
+            this.stopReason = "minimum acceptance rate";
             return true;
-        } else if (noImprovementCount > NO_IMPROVEMENT_LIMIT) {
-            System.out.println("\n===== STOP CRITERION =====");
-            System.out.println("No Improvement Count: " + noImprovementCount);
+        } else if (noImprovementCount > this.noImprovementLimit) {
+            this.stopReason = "no improvement";
             return true;
         }
         return false;
     }
 
-    // Main loop: Simulated Annealing
-    public void run() {
+    // Private: the reason to stop if the deadline of the time budget or of the time limit has passed, or null
+    private String deadlineReason() {
+        long now = System.nanoTime();
+        if (this.budgetNanos > 0 && now - this.budgetStart >= this.budgetNanos) return "time budget";
+        if (this.timeLimitNanos > 0 && now - this.limitStart >= this.timeLimitNanos) return "time limit";
+        return null;
+    }
+
+    // Private: true once the lower bound is known and the best cost is within the target gap of it
+    private boolean gapReached(int bestCost) {
+        if (this.lowerBound == null || !this.lowerBound.isDone()) return false;
+        if (this.targetCost < 0) {
+            HeldKarpBound bound = knownLowerBound();
+            if (bound == null) return false;
+            this.targetCost = (long) Math.floor(bound.getBound() * (1.0 + this.targetGap / 100.0));
+        }
+        return bestCost <= this.targetCost;
+    }
+
+    // Private: the lower bound of the instance if it has been computed for this run and is proven, or null
+    private HeldKarpBound knownLowerBound() {
+        if (this.lowerBound == null || !this.lowerBound.isDone() || this.lowerBound.isCompletedExceptionally()) return null;
+        HeldKarpBound bound = this.lowerBound.join();
+        return bound.isExact() ? bound : null;
+    }
+
+    // Anytime solving: runs for at most the given wall-clock time and returns the best solution found.
+    // The cooling follows the clock instead of the iteration count: at every temperature step the
+    // temperature is T0 * (minTemp/T0)^f, where f is the elapsed share of the budget, so it reaches
+    // minTemp at the deadline whatever the speed of the machine. The stagnation criteria are off, the
+    // whole budget is used. The budget is for the annealing itself: building the initial tour and
+    // calibrating the schedule happen before its clock starts, so even a short budget anneals.
+    // onImprovement (may be null) receives a copy of every new best solution, at most once per
+    // temperature step, so callers can take an early answer.
+    public AnnealingResult solve(Duration budget, Consumer<Solution> onImprovement) {
+        if (budget.isNegative() || budget.isZero()) throw new IllegalArgumentException("The time budget must be positive.");
+        AnnealingListener improvements = onImprovement == null ? null : new AnnealingListener() {
+            @Override
+            public void onImprovement(Solution best, int iteration, long elapsedNanos) {
+                onImprovement.accept(best);
+            }
+        };
+        if (improvements != null) this.listeners.add(improvements);
+        this.budgetNanos = Math.max(1, budget.toNanos());
+        try {
+            return run();
+        } finally {
+            this.budgetNanos = 0;
+            if (improvements != null) this.listeners.remove(improvements);
+        }
+    }
+
+    // Anytime solving without a callback (see solve(Duration, Consumer))
+    public AnnealingResult solve(Duration budget) {
+        return solve(budget, null);
+    }
+
+    // Main loop: Simulated Annealing. Returns the best solution and the run statistics,
+    // or null if there are not enough cities (nothing is printed, callers report it).
+    public AnnealingResult run() {
         // Check if there are enough cities to proceed
-        if (this.cities.size() < 2) {
-            System.out.println("There must be at least 2 cities.");
-            return;
+        if (this.matrix.size() < 2) return null;
+        return anneal(null);
+    }
+
+    // Re-optimizes the tour of a previous run after cities were added to or removed from the instance.
+    // previousTour is that tour as city names (e.g. getBest().getPath(oldMatrix) of its result): cities
+    // that are no longer in the instance are dropped, and the new ones are inserted where they lengthen
+    // the tour the least. The run starts from the repaired tour at a low automatic temperature and only
+    // proposes moves from the cities around the changes, with a schedule sized for that region
+    // (setInitialTemperature and setMaxIterations still apply). Returns null if there are not enough cities.
+    public AnnealingResult reoptimize(List<String> previousTour) {
+        int n = this.matrix.size();
+        if (n < 2) return null;
+
+        // Cities of the previous tour that are still in the instance, in tour order
+        int L = previousTour.size();
+        int[] mapped = new int[L];
+        boolean[] kept = new boolean[n];
+        int count = 0;
+        for (int i = 0; i < L; i++) {
+            int city = this.matrix.indexOf(previousTour.get(i));
+            mapped[i] = city >= 0 && !kept[city] ? city : -1;
+            if (mapped[i] >= 0) {
+                kept[city] = true;
+                count++;
+            }
+        }
+
+        // Changed cities: the new ones, and the ones that were next to a removed city
+        boolean[] changed = new boolean[n];
+        int[] partial = new int[count];
+        for (int i = 0, p = 0; i < L; i++) {
+            if (mapped[i] < 0) continue;
+            partial[p++] = mapped[i];
+            if (mapped[(i + L - 1) % L] < 0 || mapped[(i + 1) % L] < 0) changed[mapped[i]] = true;
+        }
+        for (int c = 0; c < n; c++) {
+            if (!kept[c]) changed[c] = true;
+        }
+
+        int[] order = InitialTours.insert(this.matrix, constructionCandidates(), partial);
+        this.warmTour = order;
+        this.focus = focusRegion(order, changed);
+        try {
+            return anneal(null);
+        } finally {
+            this.warmTour = null;
+            this.focus = null;
+        }
+    }
+
+    // Private: the cities within FOCUS_RADIUS positions along the tour of a changed city (the moves
+    // reach their nearest neighbors from there). Null (every city) if nothing changed or the region
+    // covers most of the tour.
+    private int[] focusRegion(int[] order, boolean[] changed) {
+        int n = order.length;
+        boolean[] inRegion = new boolean[n];
+        for (int p = 0; p < n; p++) {
+            if (!changed[order[p]]) continue;
+            for (int q = p - FOCUS_RADIUS; q <= p + FOCUS_RADIUS; q++) {
+                inRegion[order[Math.floorMod(q, n)]] = true;
+            }
+        }
+        int[] region = new int[n];
+        int size = 0;
+        for (int c = 0; c < n; c++) {
+            if (inRegion[c]) region[size++] = c;
+        }
+        return size == 0 || size > n / 2 ? null : Arrays.copyOf(region, size);
+    }
+
+    // Continues a run from a checkpoint file written during it (see setCheckpoint). The annealer must
+    // use the same instance and candidate lists; parameters, operators and the state of the random
+    // generator come from the checkpoint, so a seeded run continues exactly as it would have without
+    // the interruption. The region of a reoptimize() run and the rest of the time budget of a solve()
+    // run also come from the checkpoint. The execution time includes the time spent before the checkpoint.
+    public AnnealingResult resume(String file) throws IOException {
+        AnnealingCheckpoint cp = AnnealingCheckpoint.read(file);
+        if (cp.cities != this.matrix.size() || cp.current.size() != this.matrix.size()) {
+            throw new IllegalArgumentException("The checkpoint has " + cp.cities + " cities, the instance " + this.matrix.size());
+        }
+        if (cp.focus != null) {
+            for (int c : cp.focus) {
+                if (c < 0 || c >= this.matrix.size()) throw new IllegalArgumentException("Invalid focus city in the checkpoint: " + c);
+            }
         }
+        this.focus = cp.focus;
+        this.budgetNanos = cp.budgetNanos;
+        try {
+            return anneal(cp);
+        } finally {
+            this.focus = null;
+            this.budgetNanos = 0;
+        }
+    }
+
+    // Private: the annealing loop, from a new random solution or from a checkpoint
+    private AnnealingResult anneal(AnnealingCheckpoint resumed) {
+        this.limitStart = System.nanoTime();
+        double avgDist;
+        Solution current, best, worst, first;
+        double firstTemp, lastTemp, bestTemp, worstTemp;
+        int firstIter, lastIter, bestIter, worstIter;
+        double T;
+        int iteration, step, acceptedMoves, totalMoves, noImprovementCount;
+        long elapsed;
+
+        if (resumed == null) {
+            // Fresh move operators, so their statistics and adaptive weights are per run
+            this.operators = OperatorSelector.parse(this.operatorSpec, this.candidates, this.adaptiveOperators);
+            this.operators.setFocus(this.focus);
+
+            // Initialize solutions
+            current = createInitialSolution(); // Current solution
+            current.evaluate(this.matrix);     // Evaluate current solution cost
+
+            // Automatically adjust parameters based on problem size and on moves sampled from the initial solution
+            avgDist = autoAdjustParameters(current);
+            // The current solution is modified in place, so the others are snapshots
+            // that are only copied when they actually change
+            best = new Solution(current);      // Best solution so far
+            worst = new Solution(current);     // Worst solution so far
+            first = new Solution(current);     // First solution
+
+            // Track additional info for each type of solution
+            firstTemp = this.T0; lastTemp = 0.0; bestTemp = 0.0; worstTemp = 0.0;
+            firstIter = 0; lastIter = 0; bestIter = 0; worstIter = 0;
+
+            // Initialize temperature and iteration counters
+            T = this.T0;
+            iteration = 0;
+            step = 0;
+
+            // Counters for acceptance rate and stagnation
+            acceptedMoves = 0;
+            totalMoves = 0;
+            noImprovementCount = 0;
+            elapsed = 0;
+        } else {
+            // Parameters, operators and random generator of the interrupted run (resume() sets its focus and time budget)
+            avgDist = averageDistance(this.matrix);
+            this.T0 = resumed.T0;
+            this.alpha = resumed.alpha;
+            this.minTemp = resumed.minTemp;
+            this.maxIter = resumed.maxIter;
+            this.iterPerTemp = resumed.iterPerTemp;
+            this.noImprovementLimit = Math.max(NO_IMPROVEMENT_LIMIT, NO_IMPROVEMENT_STEPS * baseIterationsPerTemp());
+            deriveDecayConstants();
+            this.decayMethod = resumed.decayMethod;
+            this.iterMethod = resumed.iterMethod;
+            this.operatorSpec = resumed.operatorSpec;
+            this.adaptiveOperators = resumed.adaptiveOperators;
+            this.operators = OperatorSelector.parse(this.operatorSpec, this.candidates, this.adaptiveOperators);
+            this.operators.setFocus(this.focus);
+            try {
+                this.operators.readState(new DataInputStream(new ByteArrayInputStream(resumed.operatorState)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid operator state in the checkpoint", e);
+            }
+            this.rng.setState(resumed.rngState);
+
+            current = new Solution(resumed.current);
+            current.evaluate(this.matrix);
+            if (current.getCost() != resumed.currentCost) {
+                throw new IllegalArgumentException("The checkpoint does not match the instance: cost "
+                        + current.getCost() + " instead of " + resumed.currentCost);
+            }
+            best = restore(resumed.best);
+            worst = restore(resumed.worst);
+            first = restore(resumed.first);
 
-        // Automatically adjust parameters based on problem size
-        autoAdjustParameters();
+            firstTemp = resumed.first.temperature; lastTemp = resumed.lastTemp;
+            bestTemp = resumed.best.temperature; worstTemp = resumed.worst.temperature;
+            firstIter = resumed.first.iteration; lastIter = resumed.lastIter;
+            bestIter = resumed.best.iteration; worstIter = resumed.worst.iteration;
 
-        // Initialize solutions
-        Solution current = createInitialSolution(); // Current solution
-        current.evaluate(this.matrix);              // Evaluate current solution cost
-        Solution best = current;                    // Best solution so far
-        Solution worst = current;                   // Worst solution so far
-        Solution first = current;                   // First solution
-        Solution last = current;                    // Last solution
+            T = resumed.T;
+            iteration = resumed.iteration;
+            step = resumed.step;
+            acceptedMoves = resumed.acceptedMoves;
+            totalMoves = resumed.totalMoves;
+            noImprovementCount = resumed.noImprovementCount;
+            elapsed = resumed.elapsedMillis;
+        }
+
+        // Observers of this run: console output if verbose, JFR events if a recording is running and
+        // the added listeners
+        List<AnnealingListener> observers = new ArrayList<>();
+        if (this.verbose) observers.add(new ConsoleListener());
+        if (JfrListener.recording()) observers.add(new JfrListener());
+        observers.addAll(this.listeners);
+        AnnealingListener[] active = observers.toArray(new AnnealingListener[0]);
+
+        // With a time budget the temperature follows the clock and only the deadline ends the run
+        boolean timed = this.budgetNanos > 0;
+        if (timed) {
+            this.maxIter = Integer.MAX_VALUE;
+            this.noImprovementLimit = Integer.MAX_VALUE;
+            this.minAcceptanceRate = 0.0;
+        } else {
+            this.minAcceptanceRate = MIN_ACCEPTANCE_RATE;
+        }
 
-        // Track additional info for each type of solution
-        double firstTemp = this.T0, lastTemp = 0.0, bestTemp = 0.0, worstTemp = 0.0;
-        int firstIter = 0, lastIter = 0, bestIter = 0, worstIter = 0;
+        // The clock is only read in the loop with a time budget or a time limit
+        boolean clocked = timed || this.timeLimitNanos > 0;
 
-        // Initialize temperature and iteration counters
-        double T = this.T0;
-        int iteration = 0;
+        // Moves of the next step with a time budget, from the speed measured on the previous one
+        int timedStepMoves = MIN_TIMED_STEP_MOVES;
 
-        // Counters for acceptance rate and stagnation
-        int acceptedMoves = 0;
-        int totalMoves = 0;
-        int noImprovementCount = 0;
+        // Cost of the last best solution reported to onImprovement
+        int reportedCost = Integer.MAX_VALUE;
 
         // Flag to exit the main loop early if a stop criterion is met inside the for-loop
         boolean exit = false;
 
-        long start = System.currentTimeMillis(); // Start measuring execution time
+        // The best solution is only copied when the current one is about to move away from it
+        boolean bestIsCurrent = false;
+
+        // Stagnation is only counted below this temperature
+        double stagnationTemp = Math.sqrt(this.T0 * this.minTemp);
+
+        this.stopReason = null;
+        this.lowerBound = this.targetGap > 0 ? HeldKarpBound.computeAsync(this.matrix) : null;
+        this.targetCost = -1;
+        this.offered.set(null);
+        for (AnnealingListener l : active) l.onStart(this, avgDist);
+        this.metrics.start(T, current.getCost());
+
+        // Checkpoints are written by a background thread, one at a time; the first solution never
+        // changes, so all of them share it
+        ExecutorService checkpointWriter = null;
+        Future<?> pendingCheckpoint = null;
+        AnnealingCheckpoint.Record firstRecord = new AnnealingCheckpoint.Record(first.getTour(), first.getCost(), firstIter, firstTemp);
+        if (this.checkpointFile != null) {
+            checkpointWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "checkpoint-writer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        // Start measuring execution time (continuing the time of a resumed run)
+        long start = System.currentTimeMillis() - elapsed;
+        long startNanos = System.nanoTime() - elapsed * 1_000_000;
+        long lastCheckpoint = System.currentTimeMillis();
+
+        // The time budget starts with the first move (continuing the budget of a resumed run)
+        if (timed) this.budgetStart = System.nanoTime() - (resumed == null ? 0 : resumed.budgetSpentNanos);
+
+        // The checkpoint writer is shut down however the run ends
+        long end;
+        try {
+            // Main loop: repeat until a stopping criterion is met
+            while (!stopCriterionMethod(T, iteration, acceptedMoves, totalMoves, noImprovementCount, best.getCost())) {
+                setAcceptanceTemperature(T);
+                boolean cold = T <= stagnationTemp;
+                int stepMoves = totalMoves, stepAccepted = acceptedMoves;
+
+                // The temperature is constant during the step and the iteration limit is reached at a known
+                // move, so only the criteria that change on a rejected move are checked inside the loop
+                int steps = Math.min(timed ? timedStepMoves : this.iterPerTemp, this.maxIter - iteration);
+                long stepStart = timed ? System.nanoTime() : 0;
 
-        System.out.println("\n==== Starting Simulated Annealing ====");
-        System.out.printf("Temperature Decay Method: %s%n", this.decayMethod);
-        System.out.printf("Iteration Variation Method: %s%n", this.iterMethod);
-        System.out.println("------------------------------------------------------------\n");
-        System.out.println("Initial Iterations per Temperature: " + this.iterPerTemp);
+                // Loop for a fixed number of iterations at the current temperature
+                for (int k = 0; k < steps; k++) {
+                    // Propose a neighbor and get the change in cost (delta) without building it
+                    int delta = neighbor(current);
+                    totalMoves++; // Count total moves
 
-        // Main loop: repeat until a stopping criterion is met
-        while (!stopCriterionMethod(T, iteration, acceptedMoves, totalMoves, noImprovementCount)) {
+                    // Acceptance criterion
+                    // Accept if neighbor is better (delta < 0) or with probability exp(-delta/T)
+                    boolean ok = accept(delta);
+                    if (ok) {
+                        if (bestIsCurrent && delta >= 0) {
+                            best.copyFrom(current);
+                            bestIsCurrent = false;
+                        }
+                        applyNeighbor(current, delta);
+                        acceptedMoves++; // Increment accepted moves
+                    } else if (cold) {
+                        noImprovementCount++; // Increment rejected moves (no improvement)
+                    }
+                    this.operators.update(this.lastOperator, delta, ok);
 
-            // Loop for a fixed number of iterations at the current temperature
-            for (int k = 0; k < this.iterPerTemp; k++) {
-                // Early exit if any stop criterion is triggered
-                if (stopCriterionMethod(T, iteration, acceptedMoves, totalMoves, noImprovementCount)) {
-                    exit = true;
-                    break;
+                    // Update best and worst solutions if necessary
+                    if (current.getCost() < best.getCost()) {
+                        best.setCost(current.getCost());
+                        bestIsCurrent = true;
+                        noImprovementCount = 0; // stagnation is counted since the last new best
+                        bestTemp = T;
+                        bestIter = iteration;
+                    }
+                    if (current.getCost() > worst.getCost()) {
+                        worst.copyFrom(current);
+                        worstTemp = T;
+                        worstIter = iteration;
+                    }
+
+                    iteration++; // Increment overall iteration count
+
+                    // Early exit if a stop criterion is triggered before the next move of this step
+                    // (checked without a division first, and only when a move was rejected)
+                    if (!ok && k + 1 < steps
+                            && (noImprovementCount > this.noImprovementLimit || acceptedMoves < this.minAcceptanceRate * totalMoves)
+                            && stopCriterionMethod(T, iteration, acceptedMoves, totalMoves, noImprovementCount, best.getCost())) {
+                        exit = true;
+                        break;
+                    }
+
+                    // The deadline of a time budget or limit is checked every 1024 moves
+                    if (clocked && (k & 1023) == 1023) {
+                        String reason = deadlineReason();
+                        if (reason != null) {
+                            this.stopReason = reason;
+                            exit = true;
+                            break;
+                        }
+                    }
                 }
 
-                // Generate a neighbor solution using 2-opt swap
-                Solution next = neighbor(current);
+                // The iteration limit was reached in the middle of the step
+                if (!exit && steps < this.iterPerTemp) {
+                    exit = stopCriterionMethod(T, iteration, acceptedMoves, totalMoves, noImprovementCount, best.getCost());
+                }
 
-                // Calculate the change in cost (delta) between current and neighbor
-                int delta = next.getCost() - current.getCost();
-                totalMoves++; // Count total moves
+                // Update the last temperature and iteration (the last solution is the final current one)
+                lastTemp = T;
+                lastIter = iteration;
 
-                // Acceptance criterion
-                // Accept if neighbor is better (delta < 0) or with probability exp(-delta/T)
-                if (delta < 0 || this.rng.nextDouble() < Math.exp(-delta / T)) {
-                    current = next;
-                    acceptedMoves++; // Increment accepted moves
-                } else {
-                    noImprovementCount++; // Increment rejected moves (no improvement)
+                // Report the step
+                step++;
+                this.metrics.publish(T, step, totalMoves, acceptedMoves, current.getCost(), best.getCost());
+                TemperatureStep stats = new TemperatureStep(step - 1, T, totalMoves - stepMoves, acceptedMoves - stepAccepted,
+                        iteration, current.getCost(), best.getCost(), System.nanoTime() - startNanos);
+                for (AnnealingListener l : active) l.onTemperatureStep(stats);
+                if (best.getCost() < reportedCost) {
+                    reportedCost = best.getCost();
+                    Solution snapshot = new Solution(bestIsCurrent ? current : best);
+                    snapshot.setCost(reportedCost);
+                    for (AnnealingListener l : active) l.onImprovement(snapshot, iteration, stats.getElapsedNanos());
                 }
 
-                // Update best and worst solutions if necessary
-                if (current.getCost() < best.getCost()) {
-                    best = current;
-                    bestTemp = T;
-                    bestIter = iteration;
+                // Break main loop if early exit was triggered
+                if (exit) break;
+
+                // Continue from a tour offered by another thread if it is shorter than the current one
+                int[] order = this.offered.getAndSet(null);
+                if (order != null) {
+                    Solution offer = new Solution(order);
+                    offer.evaluate(this.matrix);
+                    if (offer.getCost() < current.getCost()) {
+                        if (bestIsCurrent) {
+                            best.copyFrom(current);
+                            bestIsCurrent = false;
+                        }
+                        current.copyFrom(offer);
+                        this.metrics.adopted();
+                        if (current.getCost() < best.getCost()) {
+                            best.setCost(current.getCost());
+                            bestIsCurrent = true;
+                            noImprovementCount = 0;
+                            bestTemp = T;
+                            bestIter = iteration;
+                        }
+                    }
                 }
-                if (current.getCost() > worst.getCost()) {
-                    worst = current;
-                    worstTemp = T;
-                    worstIter = iteration;
+
+                // Update number of iterations per temperature based on selected variation method
+                this.iterPerTemp = varyIterationsPerTemp(this.iterPerTemp, iteration, this.iterMethod);
+
+                // Update temperature according to the selected decay method, or to the elapsed time
+                if (timed) {
+                    long now = System.nanoTime();
+                    double f = Math.min(1.0, (double) (now - this.budgetStart) / this.budgetNanos);
+                    T = this.T0 * Math.pow(this.minTemp / this.T0, f);
+                    double movesPerNano = (double) (totalMoves - stepMoves) / Math.max(1, now - stepStart);
+                    timedStepMoves = (int) Math.max(MIN_TIMED_STEP_MOVES, Math.min(this.iterPerTemp, movesPerNano * this.budgetNanos / TIMED_STEPS));
+                } else {
+                    T = decayTemperature(T, iteration, this.decayMethod);
                 }
 
-                iteration++; // Increment overall iteration count
+                // Checkpoint of the state at the start of the next step, once the previous one is written.
+                // Only copies are taken here, the file is written by the background thread.
+                if (checkpointWriter != null && System.currentTimeMillis() - lastCheckpoint >= this.checkpointInterval
+                        && (pendingCheckpoint == null || pendingCheckpoint.isDone())) {
+                    lastCheckpoint = System.currentTimeMillis();
+                    AnnealingCheckpoint cp = new AnnealingCheckpoint();
+                    cp.cities = this.matrix.size();
+                    cp.T0 = this.T0;
+                    cp.alpha = this.alpha;
+                    cp.minTemp = this.minTemp;
+                    cp.maxIter = this.maxIter;
+                    cp.decayMethod = this.decayMethod;
+                    cp.iterMethod = this.iterMethod;
+                    cp.operatorSpec = this.operatorSpec;
+                    cp.adaptiveOperators = this.adaptiveOperators;
+                    cp.T = T;
+                    cp.iterPerTemp = this.iterPerTemp;
+                    cp.iteration = iteration;
+                    cp.step = step;
+                    cp.acceptedMoves = acceptedMoves;
+                    cp.totalMoves = totalMoves;
+                    cp.noImprovementCount = noImprovementCount;
+                    cp.elapsedMillis = lastCheckpoint - start;
+                    cp.rngState = this.rng.getState();
+                    cp.operatorState = operatorState();
+                    cp.current = current.getTour().copy();
+                    cp.currentCost = current.getCost();
+                    cp.first = firstRecord;
+                    cp.best = new AnnealingCheckpoint.Record((bestIsCurrent ? current : best).getTour().copy(), best.getCost(), bestIter, bestTemp);
+                    cp.worst = new AnnealingCheckpoint.Record(worst.getTour().copy(), worst.getCost(), worstIter, worstTemp);
+                    cp.lastIter = lastIter;
+                    cp.lastTemp = lastTemp;
+                    cp.focus = this.focus;
+                    cp.budgetNanos = this.budgetNanos;
+                    cp.budgetSpentNanos = timed ? System.nanoTime() - this.budgetStart : 0;
+                    String file = this.checkpointFile;
+                    pendingCheckpoint = checkpointWriter.submit(() -> {
+                        try {
+                            cp.write(file);
+                        } catch (IOException e) {
+                            System.err.println("Could not write checkpoint " + file + ": " + e.getMessage());
+                        }
+                    });
+                }
             }
 
-            // Update the last solution at the current temperature
-            last = current;
-            lastTemp = T;
-            lastIter = iteration;
+            end = System.currentTimeMillis(); // End measuring execution time
 
-            // Break main loop if early exit was triggered
-            if (exit) break;
+            // Let the last checkpoint finish writing
+            if (pendingCheckpoint != null) {
+                try {
+                    pendingCheckpoint.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Checkpoint writer failed", e.getCause());
+                }
+            }
+        } finally {
+            if (checkpointWriter != null) checkpointWriter.shutdown();
+        }
 
-            // Update number of iterations per temperature based on selected variation method
-            this.iterPerTemp = varyIterationsPerTemp(this.iterPerTemp, iteration, this.iterMethod);
-            System.out.println("Current Iterations per Temperature: " + this.iterPerTemp);
+        if (bestIsCurrent) best.copyFrom(current);
+        this.metrics.finish();
 
-            // Update temperature according to the selected decay method
-            T = decayTemperature(T, iteration, this.decayMethod);
-        }
+        for (AnnealingListener l : active) l.onStop(this.stopReason, T, iteration, acceptedMoves, totalMoves, noImprovementCount);
+
+        Solution last = current; // Last solution
 
-        long end = System.currentTimeMillis(); // End measuring execution time
-
-        // Display final results
-        System.out.println("\n===== RESULTS =====");
-        System.out.printf("%-18s %-55s %-12s %-12s %-12s%n",
-                "Solution Type:", "Path", "Cost (Km)", "Iteration", "Temperature");
-        System.out.println("----------------------------------------------------------------------------------------------------------------");
-        System.out.printf("%-18s %-55s %-10d %-12d %-12.2f%n",
-                "First Solution:", first.getPath(), first.getCost(), firstIter, firstTemp);
-        System.out.printf("%-18s %-55s %-10d %-12d %-12.2f%n",
-                "Last Solution:", last.getPath(), last.getCost(), lastIter, lastTemp);
-        System.out.printf("%-18s %-55s %-10d %-12d %-12.2f%n",
-                "Best Solution:", best.getPath(), best.getCost(), bestIter, bestTemp);
-        System.out.printf("%-18s %-55s %-10d %-12d %-12.2f%n",
-                "Worst Solution:", worst.getPath(), worst.getCost(), worstIter, worstTemp);
-
-        System.out.println("\nTotal Iterations: " + iteration);
-        System.out.println("Execution Time: " + (end - start) + " ms");
+        HeldKarpBound bound = knownLowerBound();
+        AnnealingResult result = new AnnealingResult(best, iteration, acceptedMoves, totalMoves, T, end - start, this.stopReason,
+                bound == null ? 0 : bound.getBound());
+
+        // Report the results (the console listener displays them)
+        AnnealingReport report = new AnnealingReport(result, this.matrix,
+                new AnnealingReport.Entry(first, firstIter, firstTemp),
+                new AnnealingReport.Entry(last, lastIter, lastTemp),
+                new AnnealingReport.Entry(best, bestIter, bestTemp),
+                new AnnealingReport.Entry(worst, worstIter, worstTemp),
+                this.operators);
+        for (AnnealingListener l : active) l.onFinish(report);
+
+        return result;
+    }
+
+    // Private: rebuilds a solution saved in a checkpoint
+    private static Solution restore(AnnealingCheckpoint.Record record) {
+        Solution s = new Solution(record.tour);
+        s.setCost(record.cost);
+        return s;
+    }
+
+    // Private: the state of the move operators, as written by OperatorSelector.writeState
+    private byte[] operatorState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            this.operators.writeState(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a byte array
+        }
+        return bytes.toByteArray();
     }
 }
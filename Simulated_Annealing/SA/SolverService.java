@@ -0,0 +1,360 @@
+package SA;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.Distances;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Long-lived solver process: instances are loaded on first use and kept in memory, and solve
+ * requests arrive over HTTP on the loopback interface. Results are JSON objects.
+ *
+ *   POST /solve?instance=E3&time=500&seed=1   solve (parameters in the query and/or a form body)
+ *   GET  /status                              workers, running and queued solves, counters
+ *   GET  /instances                           instances loaded so far
+ *
+ * Solve parameters, with the names of the batch runner keys:
+ *   instance    (required) instance specification, as in BatchRunner (E1, file.tsp, file:INITIALS, ...)
+ *   cities      comma-separated names of a subset of the instance's cities
+ *   time        time budget in milliseconds (default 1000, capped at max_time), see SimulatedAnnealing.solve
+ *   iterations  iteration budget, used instead of a time budget when time is not given (the run
+ *               still stops at max_time, as do re-optimizations, see SimulatedAnnealing.setTimeLimit)
+ *   tour        comma-separated names of a previous tour, to re-optimize it for the (changed)
+ *               instance instead of solving from scratch (see SimulatedAnnealing.reoptimize)
+ *   gap         stop within this % of the Held-Karp lower bound of the instance (see setTargetGap)
+ *   seed, candidates, operators, adaptive, start, t0, decay, iter
+ *
+ * Solves run on a fixed pool of CPU workers. At most workers + queue solves are admitted at a
+ * time; any request beyond that is refused at once with 503 and Retry-After, so the latency of
+ * admitted requests stays bounded. Connections are served by their own threads, which only wait
+ * for the workers.
+ *
+ * Configuration, as a properties file and/or key=value arguments:
+ *   port = 8765, workers = <processors>, queue = 4 x workers, matrix = distancias.txt, max_time = 60000
+ */
+public class SolverService {
+
+    private static final long DEFAULT_TIME = 1000;
+    private static final int MAX_BODY = 1 << 20;
+
+    private final InstanceCache cache;
+    private final int port;
+    private final int workerCount;
+    private final long maxTime;
+
+    private final Semaphore admission;
+    private final AtomicInteger admitted;
+    private final AtomicInteger running;
+    private final AtomicLong completed;
+    private final AtomicLong failed;
+    private final AtomicLong rejected;
+
+    private HttpServer server;
+    private ExecutorService workers;
+    private ExecutorService connections;
+
+    public SolverService(Properties config) {
+        this.cache = new InstanceCache(config.getProperty("matrix", "distancias.txt").trim());
+        this.port = Integer.parseInt(config.getProperty("port", "8765").trim());
+        this.workerCount = Integer.parseInt(config.getProperty("workers",
+                Integer.toString(Runtime.getRuntime().availableProcessors())).trim());
+        int queue = Integer.parseInt(config.getProperty("queue", Integer.toString(4 * this.workerCount)).trim());
+        this.maxTime = Long.parseLong(config.getProperty("max_time", "60000").trim());
+        if (this.workerCount < 1) throw new IllegalArgumentException("There must be at least 1 worker.");
+        if (queue < 0) throw new IllegalArgumentException("The queue length cannot be negative.");
+        this.admission = new Semaphore(this.workerCount + queue);
+        this.admitted = new AtomicInteger();
+        this.running = new AtomicInteger();
+        this.completed = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.rejected = new AtomicLong();
+    }
+
+    // Usage: SolverService [config.properties] [key=value ...]
+    public static void main(String[] args) throws IOException {
+        SolverService service = new SolverService(BatchRunner.parseArguments(args));
+        int port = service.start();
+        System.out.println("Solver service listening on http://127.0.0.1:" + port);
+    }
+
+    // Starts the service and returns its port (port 0 in the configuration picks a free one)
+    public synchronized int start() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+        this.workers = Executors.newFixedThreadPool(this.workerCount, daemonThreads("solver-worker"));
+        this.connections = Executors.newCachedThreadPool(daemonThreads("solver-connection"));
+        this.server.setExecutor(this.connections);
+        this.server.createContext("/solve", ex -> handle(ex, "POST", this::solve));
+        this.server.createContext("/status", ex -> handle(ex, "GET", this::status));
+        this.server.createContext("/instances", ex -> handle(ex, "GET", this::instances));
+        warmUp();
+        this.server.start();
+        return this.server.getAddress().getPort();
+    }
+
+    // Private: runs a short solve on a small random instance before the first request, so the
+    // first client does not pay for class loading and JIT compilation out of its time budget
+    private static void warmUp() {
+        int n = 200;
+        String[] names = new String[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        Random rnd = new Random(1);
+        for (int i = 0; i < n; i++) {
+            names[i] = "W" + i;
+            x[i] = rnd.nextDouble() * 1000;
+            y[i] = rnd.nextDouble() * 1000;
+        }
+        Distances m = new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D);
+        SimulatedAnnealing sa = new SimulatedAnnealing(m, 1);
+        sa.setVerbose(false);
+        sa.setCandidateLists(CandidateLists.build(m, 8));
+        sa.setMaxIterations(200_000);
+        sa.run();
+        sa = new SimulatedAnnealing(m, 2);
+        sa.setVerbose(false);
+        sa.solve(Duration.ofMillis(100));
+    }
+
+    // Stops accepting requests and cancels the solves in progress
+    public synchronized void stop() {
+        if (this.server == null) return;
+        this.server.stop(0);
+        this.workers.shutdownNow();
+        this.connections.shutdownNow();
+        this.server = null;
+    }
+
+    // A request handler that returns the status code and the JSON body of the response
+    private interface Endpoint {
+        Object[] respond(HttpExchange ex) throws IOException;
+    }
+
+    // Private: checks the method, runs the endpoint and sends its response
+    private void handle(HttpExchange ex, String method, Endpoint endpoint) throws IOException {
+        Object[] response;
+        try {
+            if (!ex.getRequestMethod().equals(method)) {
+                ex.getResponseHeaders().set("Allow", method);
+                response = new Object[]{405, error("Use " + method)};
+            } else {
+                response = endpoint.respond(ex);
+            }
+        } catch (IllegalArgumentException e) {
+            response = new Object[]{400, error(e.getMessage())};
+        }
+        byte[] body = ((String) response[1]).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders((int) response[0], body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Private: POST /solve
+    private Object[] solve(HttpExchange ex) throws IOException {
+        Map<String, String> params = parameters(ex);
+        if (!params.containsKey("instance")) throw new IllegalArgumentException("Missing parameter: instance");
+        if (!this.admission.tryAcquire()) {
+            this.rejected.incrementAndGet();
+            ex.getResponseHeaders().set("Retry-After", "1");
+            return new Object[]{503, error("Too many requests, try again later")};
+        }
+        long received = System.nanoTime();
+        this.admitted.incrementAndGet();
+        try {
+            return new Object[]{200, this.workers.submit(() -> execute(params, received)).get()};
+        } catch (ExecutionException e) {
+            this.failed.incrementAndGet();
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException || cause instanceof UncheckedIOException) {
+                return new Object[]{400, error(cause.getMessage())};
+            }
+            return new Object[]{500, error(String.valueOf(cause))};
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Object[]{503, error("The service is stopping")};
+        } catch (RejectedExecutionException e) {
+            return new Object[]{503, error("The service is stopping")};
+        } finally {
+            this.admitted.decrementAndGet();
+            this.admission.release();
+        }
+    }
+
+    // Private: runs one solve on a worker thread and returns its result as JSON
+    private String execute(Map<String, String> params, long received) {
+        long queued = System.nanoTime() - received;
+        this.running.incrementAndGet();
+        try {
+            String spec = params.get("instance");
+            Distances m = params.containsKey("cities") ? this.cache.subset(spec, list(params.get("cities"))) : this.cache.get(spec);
+            if (m.size() < 2) throw new IllegalArgumentException("There must be at least 2 cities.");
+            long seed = params.containsKey("seed") ? Long.parseLong(params.get("seed")) : ThreadLocalRandom.current().nextLong();
+
+            SimulatedAnnealing sa = new SimulatedAnnealing(m, seed);
+            sa.setVerbose(false);
+            sa.setTimeLimit(Duration.ofMillis(this.maxTime));
+            int k = Integer.parseInt(params.getOrDefault("candidates", "0"));
+            if (k > 0) sa.setCandidateLists(this.cache.candidates(m, k));
+            sa.setMoveOperators(params.getOrDefault("operators", "2opt"), Boolean.parseBoolean(params.getOrDefault("adaptive", "false")));
+            sa.setInitialTour(params.getOrDefault("start", "random"));
+            sa.setTargetGap(Double.parseDouble(params.getOrDefault("gap", "0")));
+            sa.setInitialTemperature(Double.parseDouble(params.getOrDefault("t0", "0")));
+            if (params.containsKey("decay")) sa.setTemperatureDecayMethod(params.get("decay"));
+            if (params.containsKey("iter")) sa.setIterVariationMethod(params.get("iter"));
+
+            AnnealingResult result;
+            if (params.containsKey("tour")) {
+                if (params.containsKey("iterations")) sa.setMaxIterations(Integer.parseInt(params.get("iterations")));
+                result = sa.reoptimize(list(params.get("tour")));
+            } else if (params.containsKey("iterations") && !params.containsKey("time")) {
+                sa.setMaxIterations(Integer.parseInt(params.get("iterations")));
+                result = sa.run();
+            } else {
+                long time = Long.parseLong(params.getOrDefault("time", Long.toString(DEFAULT_TIME)));
+                result = sa.solve(Duration.ofMillis(Math.min(time, this.maxTime)));
+            }
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("instance", spec);
+            json.put("cities", m.size());
+            json.put("seed", seed);
+            json.put("best_cost", result.getBestCost());
+            if (result.getLowerBound() > 0) json.put("lower_bound", result.getLowerBound());
+            json.put("tour", result.getBest().getPath(m));
+            json.put("iterations", result.getIterations());
+            json.put("accepted", result.getAcceptedMoves());
+            json.put("acceptance_rate", result.getAcceptanceRate());
+            json.put("queue_ms", queued / 1_000_000);
+            json.put("run_ms", result.getExecutionTime());
+            json.put("stop_reason", result.getStopReason());
+            this.completed.incrementAndGet();
+            return toJson(json);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        } finally {
+            this.running.decrementAndGet();
+        }
+    }
+
+    // Private: GET /status
+    private Object[] status(HttpExchange ex) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("workers", this.workerCount);
+        json.put("running", this.running.get());
+        json.put("queued", Math.max(0, this.admitted.get() - this.running.get()));
+        json.put("available", this.admission.availablePermits());
+        json.put("completed", this.completed.get());
+        json.put("failed", this.failed.get());
+        json.put("rejected", this.rejected.get());
+        return new Object[]{200, toJson(json)};
+    }
+
+    // Private: GET /instances
+    private Object[] instances(HttpExchange ex) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("instances", this.cache.loaded());
+        return new Object[]{200, toJson(json)};
+    }
+
+    // Private: the parameters of the query string and of a form body (body values win)
+    private static Map<String, String> parameters(HttpExchange ex) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        decode(ex.getRequestURI().getRawQuery(), params);
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) throw new IllegalArgumentException("Request body too large");
+            decode(new String(body, StandardCharsets.UTF_8).trim(), params);
+        }
+        return params;
+    }
+
+    // Private: decodes application/x-www-form-urlencoded pairs into params
+    private static void decode(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) return;
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8).trim(),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    // Private: splits a comma-separated list
+    private static List<String> list(String value) {
+        List<String> values = new ArrayList<>();
+        for (String v : value.split(",")) {
+            if (!v.trim().isEmpty()) values.add(v.trim());
+        }
+        return values;
+    }
+
+    // Private: a JSON error object
+    private static String error(String message) {
+        return toJson(Map.of("error", String.valueOf(message)));
+    }
+
+    // Private: formats a map of numbers, booleans, strings and lists as a JSON object on one line
+    private static String toJson(Map<String, ?> map) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, ?> e : map.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            quote(sb, e.getKey());
+            sb.append(':');
+            value(sb, e.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    // Private: appends a JSON value
+    private static void value(StringBuilder sb, Object v) {
+        if (v == null) {
+            sb.append("null");
+        } else if (v instanceof Number || v instanceof Boolean) {
+            sb.append(v);
+        } else if (v instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) v) {
+                if (!first) sb.append(',');
+                value(sb, item);
+                first = false;
+            }
+            sb.append(']');
+        } else {
+            quote(sb, v.toString());
+        }
+    }
+
+    // Private: appends a JSON string
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    // Private: a thread factory for daemon threads with the given name prefix
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package SA;
+
+// Statistics of one temperature step of a SimulatedAnnealing run
+public class TemperatureStep {
+
+    private final int step;
+    private final double temperature;
+    private final int moves;
+    private final int acceptedMoves;
+    private final int iteration;
+    private final int currentCost;
+    private final int bestCost;
+    private final long elapsedNanos;
+
+    public TemperatureStep(int step, double temperature, int moves, int acceptedMoves, int iteration,
+                           int currentCost, int bestCost, long elapsedNanos) {
+        this.step = step;
+        this.temperature = temperature;
+        this.moves = moves;
+        this.acceptedMoves = acceptedMoves;
+        this.iteration = iteration;
+        this.currentCost = currentCost;
+        this.bestCost = bestCost;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Returns the index of the step, starting at 0
+    public int getStep() {
+        return step;
+    }
+
+    // Returns the temperature of the step
+    public double getTemperature() {
+        return temperature;
+    }
+
+    // Returns the number of moves proposed during the step
+    public int getMoves() {
+        return moves;
+    }
+
+    // Returns the number of moves accepted during the step
+    public int getAcceptedMoves() {
+        return acceptedMoves;
+    }
+
+    // Returns the ratio of accepted to proposed moves of the step
+    public double getAcceptanceRate() {
+        return moves == 0 ? 0.0 : (double) acceptedMoves / moves;
+    }
+
+    // Returns the total number of iterations of the run at the end of the step
+    public int getIteration() {
+        return iteration;
+    }
+
+    // Returns the cost of the current solution at the end of the step
+    public int getCurrentCost() {
+        return currentCost;
+    }
+
+    // Returns the best cost found so far
+    public int getBestCost() {
+        return bestCost;
+    }
+
+    // Returns the time since the start of the run, in nanoseconds
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
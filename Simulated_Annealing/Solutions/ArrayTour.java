@@ -0,0 +1,131 @@
+package Solutions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/* Tour stored as an array of cities plus the position of every city. next/prev are O(1);
+ * a flip reverses whichever side of the cycle is shorter, so it costs at most n/2 swaps.
+ */
+public class ArrayTour implements Tour {
+
+    static final byte KIND = 0; // tag of the representation in write()
+
+    private final int[] path; // cities in tour order
+    private final int[] pos;  // pos[city] = position of the city in path
+
+    public ArrayTour(int[] order) {
+        this.path = order.clone();
+        this.pos = new int[order.length];
+        for (int i = 0; i < order.length; i++) this.pos[order[i]] = i;
+    }
+
+    private ArrayTour(ArrayTour other) {
+        this.path = other.path.clone();
+        this.pos = other.pos.clone();
+    }
+
+    @Override
+    public int size() {
+        return path.length;
+    }
+
+    @Override
+    public int next(int city) {
+        int p = pos[city] + 1;
+        return path[p == path.length ? 0 : p];
+    }
+
+    @Override
+    public int prev(int city) {
+        int p = pos[city] - 1;
+        return path[p < 0 ? path.length - 1 : p];
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        int pa = pos[a], pb = pos[b], pc = pos[c];
+        if (pa <= pc) return pa <= pb && pb <= pc;
+        return pb >= pa || pb <= pc;
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (b == c || a == d || a == c) return; // the edges are adjacent or equal, nothing changes
+        if (next(a) == b) {
+            reverse(b, c, d, a);
+        } else {
+            // Travelling forward the edges are (d,c) and (b,a)
+            reverse(c, b, a, d);
+        }
+    }
+
+    // Reverses the forward path from x to y, or the rest of the cycle (from x2 to y2) if it is shorter;
+    // both give the same tour
+    private void reverse(int x, int y, int x2, int y2) {
+        int n = path.length;
+        int len = pos[y] - pos[x];
+        if (len < 0) len += n;
+        len++;
+        if (2 * len > n) {
+            x = x2;
+            y = y2;
+            len = n - len;
+        }
+        int i = pos[x], j = pos[y];
+        for (int k = 0; k < len / 2; k++) {
+            int ci = path[i], cj = path[j];
+            path[i] = cj;
+            pos[cj] = i;
+            path[j] = ci;
+            pos[ci] = j;
+            if (++i == n) i = 0;
+            if (--j < 0) j = n - 1;
+        }
+    }
+
+    @Override
+    public void swap(int u, int v) {
+        int pu = pos[u], pv = pos[v];
+        path[pu] = v;
+        pos[v] = pu;
+        path[pv] = u;
+        pos[u] = pv;
+    }
+
+    @Override
+    public void copyFrom(Tour other) {
+        if (other instanceof ArrayTour) {
+            ArrayTour o = (ArrayTour) other;
+            System.arraycopy(o.path, 0, path, 0, path.length);
+            System.arraycopy(o.pos, 0, pos, 0, pos.length);
+        } else {
+            other.toArray(path);
+            for (int i = 0; i < path.length; i++) pos[path[i]] = i;
+        }
+    }
+
+    @Override
+    public Tour copy() {
+        return new ArrayTour(this);
+    }
+
+    @Override
+    public void toArray(int[] dst) {
+        System.arraycopy(path, 0, dst, 0, path.length);
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(KIND);
+        out.writeInt(path.length);
+        for (int city : path) out.writeInt(city);
+    }
+
+    // Reads the state written by write(), after the representation tag
+    static ArrayTour readState(DataInput in) throws IOException {
+        int[] order = new int[in.readInt()];
+        for (int i = 0; i < order.length; i++) order[i] = in.readInt();
+        return new ArrayTour(order);
+    }
+}
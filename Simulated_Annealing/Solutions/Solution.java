@@ -1,18 +1,36 @@
 package Solutions;
 
-import distanceMatrix.DistanceMatrix;
+import distanceMatrix.Distances;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Solution {
 
-    private ArrayList<String> path;
+    private final Tour tour; // order of the city indices of the distance matrix
     private int cost;
 
-    public Solution(ArrayList<String> path) {
-        this.path = new ArrayList<>(path); // copy to avoid modifying the original list
+    public Solution(int[] path) {
+        this(new ArrayTour(path));
+    }
+
+    // Creates a solution over the given tour representation (it is not copied)
+    public Solution(Tour tour) {
+        this.tour = tour;
         this.cost = Integer.MAX_VALUE;
     }
 
+    // Creates a snapshot of another solution
+    public Solution(Solution other) {
+        this.tour = other.tour.copy();
+        this.cost = other.cost;
+    }
+
+    // Overwrites this solution with another one of the same size, without allocating
+    public void copyFrom(Solution other) {
+        this.tour.copyFrom(other.tour);
+        this.cost = other.cost;
+    }
+
     // Set the path cost
     public void setCost(int i) {
         this.cost = i;
@@ -23,26 +41,77 @@ public class Solution {
         return cost;
     }
 
+    // Returns the number of cities in the path
+    public int size() {
+        return tour.size();
+    }
+
+    // Returns the tour representation of the solution
+    public Tour getTour() {
+        return tour;
+    }
+
+    // Returns the city that follows the given one in the tour
+    public int next(int city) {
+        return tour.next(city);
+    }
+
+    // Returns the city that precedes the given one in the tour
+    public int prev(int city) {
+        return tour.prev(city);
+    }
+
+    // Returns true if b lies on the path that goes forward from a to c (inclusive)
+    public boolean between(int a, int b, int c) {
+        return tour.between(a, b, c);
+    }
+
     // Evaluates the total cost of the solution using the provided distance matrix
-    public void evaluate(DistanceMatrix m) {
+    public void evaluate(Distances m) {
         int total = 0;
-        // Sum distances between consecutive cities
-        for (int i = 0; i < path.size() - 1; i++) {
-            total += m.distance(path.get(i), path.get(i + 1));
+        // Sum distances between consecutive cities, including the edge that closes the cycle
+        int city = 0;
+        for (int i = 0; i < tour.size(); i++) {
+            int nextCity = tour.next(city);
+            total += m.distance(city, nextCity);
+            city = nextCity;
         }
-        // Close the TSP cycle by adding the distance from last to first city
-        total += m.distance(path.get(path.size() - 1), path.get(0));
         this.cost = total; // store the total cost
     }
 
-    // Returns the current sequence of cities in the path
-    public ArrayList<String> getPath() {
+    // Replaces the tour edges (a,b) and (c,d) with (a,c) and (b,d), where b and d follow a and c
+    // in the same direction of travel (either b = next(a), d = next(c) or b = prev(a), d = prev(c)).
+    // This is the 2-opt move and the building block of the composite moves; the cost is not updated.
+    public void flip(int a, int b, int c, int d) {
+        tour.flip(a, b, c, d);
+    }
+
+    // Exchanges the places of cities u and v and updates the cost by delta
+    public void swap(int u, int v, int delta) {
+        tour.swap(u, v);
+        this.cost += delta;
+    }
+
+    // Returns the cities in tour order
+    public int[] toArray() {
+        int[] path = new int[tour.size()];
+        tour.toArray(path);
         return path;
     }
 
-    // Returns a string representation of the path (sequence of cities)
+    // Returns the current sequence of cities in the path
+    public ArrayList<String> getPath(Distances m) {
+        int[] path = toArray();
+        ArrayList<String> names = new ArrayList<>(path.length);
+        for (int city : path) {
+            names.add(m.cityAt(city));
+        }
+        return names;
+    }
+
+    // Returns a string representation of the path (sequence of city indices)
     @Override
     public String toString() {
-        return path.toString();
+        return Arrays.toString(toArray());
     }
 }
@@ -0,0 +1,57 @@
+package Solutions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/* A tour over the cities 0..size()-1, with the queries and the reconnection primitive needed
+ * by the move operators. Positions are not part of the interface, so implementations are free
+ * to reverse either side of the cycle: after a flip the direction of travel may change, which
+ * is why flip() accepts its edges in either direction.
+ */
+public interface Tour {
+
+    // Returns the number of cities
+    int size();
+
+    // Returns the city that follows the given one
+    int next(int city);
+
+    // Returns the city that precedes the given one
+    int prev(int city);
+
+    // Returns true if b lies on the path that goes forward from a to c (inclusive)
+    boolean between(int a, int b, int c);
+
+    // Replaces the edges (a,b) and (c,d) with (a,c) and (b,d), where b follows a and d follows c
+    // in the same direction of travel (either b = next(a), d = next(c) or b = prev(a), d = prev(c))
+    void flip(int a, int b, int c, int d);
+
+    // Exchanges the places of two cities in the tour
+    void swap(int u, int v);
+
+    // Overwrites this tour with the order of another one of the same size
+    void copyFrom(Tour other);
+
+    // Returns an independent copy of this tour
+    Tour copy();
+
+    // Writes the cities in tour order, starting anywhere, into dst
+    void toArray(int[] dst);
+
+    // Writes the exact state of the tour, so that read() restores one that behaves identically
+    void write(DataOutput out) throws IOException;
+
+    // Reads a tour written by write()
+    static Tour read(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case ArrayTour.KIND:
+                return ArrayTour.readState(in);
+            case TwoLevelTour.KIND:
+                return TwoLevelTour.readState(in);
+            default:
+                throw new IOException("Unknown tour representation: " + kind);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package Solutions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/* Two-level doubly-linked list, the tour structure of Lin-Kernighan solvers for large
+ * instances. The cities are split into about sqrt(n) segments. Each segment is a doubly-linked
+ * list with sequence numbers and a reversed bit, and the segments themselves form a ring with
+ * rank numbers. next/prev/between stay O(1), and a flip costs O(sqrt n): the cities at the ends
+ * of the path are moved between neighboring segments so that the path consists of whole
+ * segments, which are then reversed by relinking the ring and toggling their bits. Short
+ * paths inside one segment are reversed directly.
+ *
+ * Inside a segment the links and sequence numbers follow the segment's own (internal) order;
+ * the tour direction is the internal one unless the segment is reversed. Links at the ends of
+ * a segment are -1, crossing to a neighboring segment goes through the ring.
+ */
+public class TwoLevelTour implements Tour {
+
+    static final byte KIND = 1; // tag of the representation in write()
+
+    // A segment that grows beyond this many times the group size triggers a rebuild
+    private static final int MAX_GROWTH = 4;
+    // Sequence numbers drifting beyond this bound trigger a rebuild
+    private static final int MAX_ID = 1 << 30;
+
+    private final int n;
+    private final int groupSize;
+    private final int segments;
+
+    // Per city
+    private final int[] nxt;
+    private final int[] prv;
+    private final int[] id;
+    private final int[] seg;
+
+    // Per segment
+    private final int[] first;
+    private final int[] last;
+    private final int[] count;
+    private final int[] snext;
+    private final int[] sprev;
+    private final int[] rank;
+    private final boolean[] rev;
+
+    // Scratch space for reversals and rebuilds
+    private final int[] buffer;
+
+    public TwoLevelTour(int[] order) {
+        this.n = order.length;
+        this.groupSize = Math.max(8, (int) Math.sqrt(n));
+        this.segments = (n + groupSize - 1) / groupSize;
+        this.nxt = new int[n];
+        this.prv = new int[n];
+        this.id = new int[n];
+        this.seg = new int[n];
+        this.first = new int[segments];
+        this.last = new int[segments];
+        this.count = new int[segments];
+        this.snext = new int[segments];
+        this.sprev = new int[segments];
+        this.rank = new int[segments];
+        this.rev = new boolean[segments];
+        this.buffer = new int[n];
+        build(order);
+    }
+
+    private TwoLevelTour(TwoLevelTour other) {
+        this.n = other.n;
+        this.groupSize = other.groupSize;
+        this.segments = other.segments;
+        this.nxt = other.nxt.clone();
+        this.prv = other.prv.clone();
+        this.id = other.id.clone();
+        this.seg = other.seg.clone();
+        this.first = other.first.clone();
+        this.last = other.last.clone();
+        this.count = other.count.clone();
+        this.snext = other.snext.clone();
+        this.sprev = other.sprev.clone();
+        this.rank = other.rank.clone();
+        this.rev = other.rev.clone();
+        this.buffer = new int[n];
+    }
+
+    // Splits the order into segments of groupSize cities (the last one may be shorter)
+    private void build(int[] order) {
+        for (int s = 0; s < segments; s++) {
+            int from = s * groupSize;
+            int to = Math.min(n, from + groupSize);
+            for (int i = from; i < to; i++) {
+                int c = order[i];
+                seg[c] = s;
+                id[c] = i - from;
+                prv[c] = i == from ? -1 : order[i - 1];
+                nxt[c] = i == to - 1 ? -1 : order[i + 1];
+            }
+            first[s] = order[from];
+            last[s] = order[to - 1];
+            count[s] = to - from;
+            snext[s] = (s + 1) % segments;
+            sprev[s] = (s + segments - 1) % segments;
+            rank[s] = s;
+            rev[s] = false;
+        }
+    }
+
+    // Rebuilds balanced segments from the current order
+    private void rebuild() {
+        int[] order = new int[n];
+        toArray(order);
+        build(order);
+    }
+
+    // First city of segment s in tour order
+    private int head(int s) {
+        return rev[s] ? last[s] : first[s];
+    }
+
+    // Last city of segment s in tour order
+    private int tail(int s) {
+        return rev[s] ? first[s] : last[s];
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int next(int city) {
+        int s = seg[city];
+        int c = rev[s] ? prv[city] : nxt[city];
+        return c >= 0 ? c : head(snext[s]);
+    }
+
+    @Override
+    public int prev(int city) {
+        int s = seg[city];
+        int c = rev[s] ? nxt[city] : prv[city];
+        return c >= 0 ? c : tail(sprev[s]);
+    }
+
+    // Compares the tour positions of two cities, counted from the segment of rank 0
+    private int compare(int a, int b) {
+        int sa = seg[a], sb = seg[b];
+        if (sa != sb) return Integer.compare(rank[sa], rank[sb]);
+        return rev[sa] ? Integer.compare(id[b], id[a]) : Integer.compare(id[a], id[b]);
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        if (compare(a, c) <= 0) return compare(a, b) <= 0 && compare(b, c) <= 0;
+        return compare(a, b) <= 0 || compare(b, c) <= 0;
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (b == c || a == d || a == c) return; // the edges are adjacent or equal, nothing changes
+        if (next(a) == b) {
+            reversePath(b, c);
+        } else {
+            // Travelling forward the edges are (d,c) and (b,a)
+            reversePath(c, b);
+        }
+    }
+
+    // Reverses the forward path from x to y (which is not the whole tour)
+    private void reversePath(int x, int y) {
+        // Inside one segment
+        if (seg[x] == seg[y] && compare(x, y) <= 0) {
+            reverseInside(x, y);
+            return;
+        }
+        // Reversing the rest of the cycle gives the same tour; use it if it lies inside one segment
+        int x2 = next(y), y2 = prev(x);
+        if (seg[x2] == seg[y2] && compare(x2, y2) <= 0) {
+            reverseInside(x2, y2);
+            return;
+        }
+        // Otherwise use the side that spans fewer segments
+        int span = Math.floorMod(rank[seg[y]] - rank[seg[x]], segments);
+        int span2 = Math.floorMod(rank[seg[y2]] - rank[seg[x2]], segments);
+        if (span2 < span) {
+            x = x2;
+            y = y2;
+        }
+
+        // Make x the head of its segment
+        int s = seg[x];
+        if (head(s) != x) {
+            int before = rev[s] ? id[last[s]] - id[x] : id[x] - id[first[s]];
+            int from = count[s] - before;
+            if (before <= from) moveHeadToPrev(s, before);
+            else moveTailToNext(s, from);
+        }
+        int sx = seg[x];
+        if (seg[y] == sx) {
+            reverseInside(x, y);
+            checkBalance();
+            return;
+        }
+
+        // Make y the tail of its segment, without moving cities into the head of x's segment
+        s = seg[y];
+        if (tail(s) != y) {
+            int after = rev[s] ? id[y] - id[first[s]] : id[last[s]] - id[y];
+            int upTo = count[s] - after;
+            if (after <= upTo && snext[s] != sx) moveTailToNext(s, after);
+            else moveHeadToPrev(s, upTo);
+        }
+
+        reverseSegments(sx, seg[y]);
+        checkBalance();
+    }
+
+    // Reverses the path x..y that lies inside one segment, x before y in tour order
+    private void reverseInside(int x, int y) {
+        if (x == y) return;
+        int s = seg[x];
+        int u = rev[s] ? y : x; // internal order u..v
+        int v = rev[s] ? x : y;
+        int before = prv[u], after = nxt[v];
+        int baseId = id[u];
+        int len = 0;
+        for (int c = u; ; c = nxt[c]) {
+            buffer[len++] = c;
+            if (c == v) break;
+        }
+        for (int k = 0; k < len; k++) {
+            int c = buffer[len - 1 - k];
+            id[c] = baseId + k;
+            prv[c] = k == 0 ? before : buffer[len - k];
+            nxt[c] = k == len - 1 ? after : buffer[len - 2 - k];
+        }
+        if (before >= 0) nxt[before] = buffer[len - 1];
+        else first[s] = buffer[len - 1];
+        if (after >= 0) prv[after] = buffer[0];
+        else last[s] = buffer[0];
+    }
+
+    // Reverses the run of whole segments s1..sk (in ring order): their order in the ring is
+    // inverted and each one is flipped by toggling its reversed bit
+    private void reverseSegments(int s1, int sk) {
+        int k = 0;
+        for (int s = s1; ; s = snext[s]) {
+            buffer[k++] = s;
+            if (s == sk) break;
+        }
+        if (k == segments) throw new IllegalStateException("Cannot reverse the whole tour");
+        int before = sprev[s1], after = snext[sk];
+        int r0 = rank[s1];
+        for (int i = 0; i < k; i++) {
+            int s = buffer[k - 1 - i];
+            rank[s] = (r0 + i) % segments;
+            rev[s] = !rev[s];
+            sprev[s] = i == 0 ? before : buffer[k - i];
+            snext[s] = i == k - 1 ? after : buffer[k - 2 - i];
+        }
+        snext[before] = buffer[k - 1];
+        sprev[after] = buffer[0];
+    }
+
+    // Moves the first k cities (tour order) of segment s to the tour tail of the previous segment
+    private void moveHeadToPrev(int s, int k) {
+        int p = sprev[s];
+        for (int t = 0; t < k; t++) {
+            int c = head(s);
+            if (rev[s]) {
+                int q = prv[c];
+                last[s] = q;
+                nxt[q] = -1;
+            } else {
+                int q = nxt[c];
+                first[s] = q;
+                prv[q] = -1;
+            }
+            if (rev[p]) {
+                int f = first[p];
+                prv[f] = c;
+                nxt[c] = f;
+                prv[c] = -1;
+                id[c] = id[f] - 1;
+                first[p] = c;
+            } else {
+                int l = last[p];
+                nxt[l] = c;
+                prv[c] = l;
+                nxt[c] = -1;
+                id[c] = id[l] + 1;
+                last[p] = c;
+            }
+            seg[c] = p;
+        }
+        count[s] -= k;
+        count[p] += k;
+    }
+
+    // Moves the last k cities (tour order) of segment s to the tour head of the next segment
+    private void moveTailToNext(int s, int k) {
+        int q = snext[s];
+        for (int t = 0; t < k; t++) {
+            int c = tail(s);
+            if (rev[s]) {
+                int r = nxt[c];
+                first[s] = r;
+                prv[r] = -1;
+            } else {
+                int r = prv[c];
+                last[s] = r;
+                nxt[r] = -1;
+            }
+            if (rev[q]) {
+                int l = last[q];
+                nxt[l] = c;
+                prv[c] = l;
+                nxt[c] = -1;
+                id[c] = id[l] + 1;
+                last[q] = c;
+            } else {
+                int f = first[q];
+                prv[f] = c;
+                nxt[c] = f;
+                prv[c] = -1;
+                id[c] = id[f] - 1;
+                first[q] = c;
+            }
+            seg[c] = q;
+        }
+        count[s] -= k;
+        count[q] += k;
+    }
+
+    // Rebuilds the segments when one has grown too large or sequence numbers drift too far
+    private void checkBalance() {
+        for (int s = 0; s < segments; s++) {
+            if (count[s] > MAX_GROWTH * groupSize || id[first[s]] < -MAX_ID || id[last[s]] > MAX_ID) {
+                rebuild();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void swap(int u, int v) {
+        int nu = next(u), pu = prev(u);
+        if (v == nu) {
+            flip(pu, u, v, next(v)); // pu u v nv -> pu v u nv
+            return;
+        }
+        if (v == pu) {
+            flip(prev(v), v, u, nu); // pv v u nu -> pv u v nu
+            return;
+        }
+        // pu u nu ... pv v nv -> pu v pv ... nu u nv -> pu v nu ... pv u nv
+        int pv = prev(v);
+        flip(pu, u, v, next(v));
+        if (nu != pv) flip(v, pv, nu, u);
+    }
+
+    @Override
+    public void copyFrom(Tour other) {
+        if (other instanceof TwoLevelTour && ((TwoLevelTour) other).n == n) {
+            TwoLevelTour o = (TwoLevelTour) other;
+            System.arraycopy(o.nxt, 0, nxt, 0, n);
+            System.arraycopy(o.prv, 0, prv, 0, n);
+            System.arraycopy(o.id, 0, id, 0, n);
+            System.arraycopy(o.seg, 0, seg, 0, n);
+            System.arraycopy(o.first, 0, first, 0, segments);
+            System.arraycopy(o.last, 0, last, 0, segments);
+            System.arraycopy(o.count, 0, count, 0, segments);
+            System.arraycopy(o.snext, 0, snext, 0, segments);
+            System.arraycopy(o.sprev, 0, sprev, 0, segments);
+            System.arraycopy(o.rank, 0, rank, 0, segments);
+            System.arraycopy(o.rev, 0, rev, 0, segments);
+        } else {
+            int[] order = new int[n];
+            other.toArray(order);
+            build(order);
+        }
+    }
+
+    @Override
+    public Tour copy() {
+        return new TwoLevelTour(this);
+    }
+
+    @Override
+    public void toArray(int[] dst) {
+        // Walk segment by segment from the segment of rank 0
+        int s = 0;
+        while (rank[s] != 0) s++;
+        int k = 0;
+        for (int t = 0; t < segments; t++, s = snext[s]) {
+            if (rev[s]) {
+                for (int c = last[s]; c >= 0; c = prv[c]) dst[k++] = c;
+            } else {
+                for (int c = first[s]; c >= 0; c = nxt[c]) dst[k++] = c;
+            }
+        }
+    }
+
+    // The segment structure decides which side of the cycle a flip reverses, and with it the
+    // direction of travel afterwards, so the whole structure is written and not just the order
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(KIND);
+        out.writeInt(n);
+        for (int[] a : new int[][]{nxt, prv, id, seg, first, last, count, snext, sprev, rank}) {
+            for (int v : a) out.writeInt(v);
+        }
+        for (boolean r : rev) out.writeBoolean(r);
+    }
+
+    // Reads the state written by write(), after the representation tag
+    static TwoLevelTour readState(DataInput in) throws IOException {
+        int size = in.readInt();
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        TwoLevelTour t = new TwoLevelTour(order);
+        for (int[] a : new int[][]{t.nxt, t.prv, t.id, t.seg, t.first, t.last, t.count, t.snext, t.sprev, t.rank}) {
+            for (int i = 0; i < a.length; i++) a[i] = in.readInt();
+        }
+        for (int i = 0; i < t.rev.length; i++) t.rev[i] = in.readBoolean();
+        return t;
+    }
+}
@@ -0,0 +1,138 @@
+package distanceMatrix;
+
+import java.util.stream.IntStream;
+
+/* The k nearest neighbors of every city, sorted by increasing distance. Moves that only
+ * connect a city to one of its candidates are far more likely to be accepted than moves
+ * between two random cities, which on large instances are almost always far apart.
+ *
+ * Lists are built once per instance, in parallel over the cities. Planar coordinate
+ * instances use a uniform grid so that each query only looks at nearby cells; any other
+ * instance compares every pair of cities.
+ */
+
+public class CandidateLists {
+
+    private final int n;
+    private final int k;
+    private final int[] neighbors; // row-major n x k
+
+    private CandidateLists(int n, int k) {
+        this.n = n;
+        this.k = k;
+        this.neighbors = new int[n * k];
+    }
+
+    /* Builds the lists of the k nearest neighbors of every city (k is capped to n-1). */
+    public static CandidateLists build(Distances m, int k) {
+        int n = m.size();
+        if (k < 1) throw new IllegalArgumentException("There must be at least 1 candidate per city");
+        CandidateLists lists = new CandidateLists(n, Math.min(k, n - 1));
+        if (m instanceof CoordinateInstance && ((CoordinateInstance) m).getType() != CoordinateInstance.EdgeWeightType.GEO) {
+            lists.buildGrid((CoordinateInstance) m);
+        } else {
+            lists.buildAllPairs(m);
+        }
+        return lists;
+    }
+
+    /* Returns the number of candidates per city. */
+    public int size() {
+        return k;
+    }
+
+    /* Returns the r-th nearest neighbor of city (r = 0 is the nearest). */
+    public int get(int city, int r) {
+        return neighbors[city * k + r];
+    }
+
+    /* Private: compares every pair of cities, keeping the k nearest with an insertion sort. */
+    private void buildAllPairs(Distances m) {
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] bestCity = new int[k];
+            long[] bestKey = new long[k];
+            int count = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) continue;
+                count = insert(bestCity, bestKey, count, j, m.distance(i, j));
+            }
+            System.arraycopy(bestCity, 0, neighbors, i * k, k);
+        });
+    }
+
+    /* Private: buckets the cities in a grid of about two cities per cell and searches rings of
+     * cells around each city until no unvisited cell can hold a closer one. */
+    private void buildGrid(CoordinateInstance m) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, m.getX(i));
+            maxX = Math.max(maxX, m.getX(i));
+            minY = Math.min(minY, m.getY(i));
+            maxY = Math.max(maxY, m.getY(i));
+        }
+        double width = Math.max(maxX - minX, 1e-9), height = Math.max(maxY - minY, 1e-9);
+        double cell = Math.max(Math.sqrt(width * height / Math.max(1, n / 2)), Math.max(width, height) / 4096);
+        int gx = (int) (width / cell) + 1, gy = (int) (height / cell) + 1;
+
+        // Cities sorted by cell (counting sort), cellStart[c]..cellStart[c+1] are the cities of cell c
+        int[] cellOf = new int[n];
+        int[] cellStart = new int[gx * gy + 1];
+        for (int i = 0; i < n; i++) {
+            int cx = (int) ((m.getX(i) - minX) / cell), cy = (int) ((m.getY(i) - minY) / cell);
+            cellOf[i] = cy * gx + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < gx * gy; c++) cellStart[c + 1] += cellStart[c];
+        int[] cellCities = new int[n];
+        int[] fill = cellStart.clone();
+        for (int i = 0; i < n; i++) cellCities[fill[cellOf[i]]++] = i;
+
+        // Distances of the instance are at least (euclidean distance) * scale - 1 after rounding
+        final double scale = m.getType() == CoordinateInstance.EdgeWeightType.ATT ? 1.0 / Math.sqrt(10.0) : 1.0;
+        final double x0 = minX, y0 = minY, size = cell;
+        final int cols = gx, rows = gy;
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] bestCity = new int[k];
+            long[] bestKey = new long[k];
+            int count = 0;
+            double xi = m.getX(i), yi = m.getY(i);
+            int cx = (int) ((xi - x0) / size), cy = (int) ((yi - y0) / size);
+            for (int r = 0; ; r++) {
+                // Cells of ring r: the border of the (2r+1) x (2r+1) square around the city's cell
+                for (int y = cy - r; y <= cy + r; y++) {
+                    if (y < 0 || y >= rows) continue;
+                    int step = (y == cy - r || y == cy + r) ? 1 : 2 * r;
+                    for (int x = cx - r; x <= cx + r; x += Math.max(step, 1)) {
+                        if (x < 0 || x >= cols) continue;
+                        int c = y * cols + x;
+                        for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+                            int j = cellCities[p];
+                            if (j == i) continue;
+                            count = insert(bestCity, bestKey, count, j, m.distance(i, j));
+                        }
+                    }
+                }
+                // Every city outside rings 0..r is at least r cells away
+                boolean covered = cx - r <= 0 && cy - r <= 0 && cx + r >= cols - 1 && cy + r >= rows - 1;
+                if (covered || (count == k && (bestKey[k - 1] >>> 32) + 1 <= r * size * scale)) break;
+            }
+            System.arraycopy(bestCity, 0, neighbors, i * k, k);
+        });
+    }
+
+    /* Private: inserts city j at distance d into the sorted top-k arrays and returns the new count.
+     * Ties are broken by city index so the lists do not depend on the visiting order. */
+    private int insert(int[] bestCity, long[] bestKey, int count, int j, int d) {
+        long key = ((long) d << 32) | j;
+        if (count == k && key >= bestKey[k - 1]) return count;
+        int p = count == k ? k - 1 : count++;
+        while (p > 0 && bestKey[p - 1] > key) {
+            bestKey[p] = bestKey[p - 1];
+            bestCity[p] = bestCity[p - 1];
+            p--;
+        }
+        bestKey[p] = key;
+        bestCity[p] = j;
+        return count;
+    }
+}
@@ -0,0 +1,209 @@
+package distanceMatrix;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* A TSP instance given by city coordinates (TSPLIB node lists) instead of a full matrix.
+ * Distances are computed on demand with the TSPLIB rounding rules of the edge weight type,
+ * so memory is O(n) and instances with 100k cities fit easily.
+ *
+ * An optional bounded cache keeps recently computed distances. It is direct-mapped: each
+ * slot is one long holding the high bits of the pair key and the distance, written and read
+ * atomically, so the instance stays safe to share between threads. It pays off for the
+ * expensive GEO distances; for EUC_2D recomputing is usually as fast as a cache lookup.
+ */
+
+public class CoordinateInstance implements Distances {
+
+    /* TSPLIB edge weight types supported for node coordinates. */
+    public enum EdgeWeightType { EUC_2D, CEIL_2D, ATT, GEO }
+
+    private static final double EARTH_RADIUS = 6378.388; // TSPLIB GEO constants
+    private static final double GEO_PI = 3.141592;
+
+    private final String[] names;
+    private final double[] x;
+    private final double[] y;
+    private final EdgeWeightType type;
+    private HashMap<String, Integer> index;
+
+    private AtomicLongArray cache;
+    private int cacheBits;
+
+    /* Creates an instance from city names and coordinates. For GEO, x is the latitude and
+     * y the longitude in the TSPLIB DDD.MM format. */
+    public CoordinateInstance(String[] names, double[] x, double[] y, EdgeWeightType type) {
+        if (names.length != x.length || x.length != y.length) {
+            throw new IllegalArgumentException("Names and coordinates must have the same length");
+        }
+        this.names = names;
+        this.type = type;
+        if (type == EdgeWeightType.GEO) {
+            // Convert to radians once instead of on every distance
+            this.x = new double[x.length];
+            this.y = new double[y.length];
+            for (int i = 0; i < x.length; i++) {
+                this.x[i] = geoRadians(x[i]);
+                this.y[i] = geoRadians(y[i]);
+            }
+        } else {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /* Loads a TSPLIB file with a NODE_COORD_SECTION. City names are the node ids. */
+    public static CoordinateInstance load(String fileName) {
+        try (BufferedReader in = new BufferedReader(new FileReader(fileName), 1 << 16)) {
+            int dimension = -1;
+            EdgeWeightType type = EdgeWeightType.EUC_2D;
+            String line;
+            // Header: "KEY : VALUE" lines up to the coordinates section
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("NODE_COORD_SECTION")) break;
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                String key = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (key.equals("DIMENSION")) {
+                    dimension = Integer.parseInt(value);
+                } else if (key.equals("EDGE_WEIGHT_TYPE")) {
+                    try {
+                        type = EdgeWeightType.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(fileName + ": unsupported EDGE_WEIGHT_TYPE " + value);
+                    }
+                }
+            }
+            if (line == null) throw new IllegalArgumentException(fileName + ": missing NODE_COORD_SECTION");
+            if (dimension < 0) throw new IllegalArgumentException(fileName + ": missing DIMENSION");
+
+            String[] names = new String[dimension];
+            double[] x = new double[dimension];
+            double[] y = new double[dimension];
+            int count = 0;
+            while (count < dimension && (line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equals("EOF")) break;
+                String[] tokens = line.split("\\s+");
+                if (tokens.length < 3) throw new IllegalArgumentException(fileName + ": bad node line: " + line);
+                names[count] = tokens[0];
+                x[count] = Double.parseDouble(tokens[1]);
+                y[count] = Double.parseDouble(tokens[2]);
+                count++;
+            }
+            if (count != dimension) {
+                throw new IllegalArgumentException(fileName + ": expected " + dimension + " nodes but found " + count);
+            }
+            return new CoordinateInstance(names, x, y, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load instance " + fileName, e);
+        }
+    }
+
+    /* Enables a bounded distance cache with 2^bits entries (8 bytes each). */
+    public void enableCache(int bits) {
+        if (bits < 1 || bits > 30) throw new IllegalArgumentException("Cache bits must be between 1 and 30");
+        if ((long) names.length * names.length >>> bits >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache too small for " + names.length + " cities");
+        }
+        this.cacheBits = bits;
+        this.cache = new AtomicLongArray(1 << bits);
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (cache == null) return compute(i, j);
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        // Low bits of the pair key select the slot, the high bits (+1, so 0 means empty) are stored with the value
+        long key = (long) i * names.length + j;
+        int slot = (int) (key & ((1 << cacheBits) - 1));
+        long tag = (key >>> cacheBits) + 1;
+        long entry = cache.get(slot);
+        if (entry >>> 32 == tag) return (int) entry;
+        int d = compute(i, j);
+        cache.lazySet(slot, tag << 32 | (d & 0xFFFFFFFFL));
+        return d;
+    }
+
+    /* Private: computes a distance with the TSPLIB rules of the edge weight type. */
+    private int compute(int i, int j) {
+        switch (type) {
+            case CEIL_2D: {
+                double dx = x[i] - x[j], dy = y[i] - y[j];
+                return (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+            }
+            case ATT: {
+                double dx = x[i] - x[j], dy = y[i] - y[j];
+                double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                int t = (int) (r + 0.5);
+                return t < r ? t + 1 : t;
+            }
+            case GEO: {
+                if (i == j) return 0;
+                double q1 = Math.cos(y[i] - y[j]);
+                double q2 = Math.cos(x[i] - x[j]);
+                double q3 = Math.cos(x[i] + x[j]);
+                return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+            }
+            case EUC_2D:
+            default: {
+                double dx = x[i] - x[j], dy = y[i] - y[j];
+                return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+            }
+        }
+    }
+
+    /* Private: converts a TSPLIB GEO coordinate (DDD.MM, degrees and minutes) to radians. */
+    private static double geoRadians(double v) {
+        int deg = (int) v;
+        double min = v - deg;
+        return GEO_PI * (deg + 5.0 * min / 3.0) / 180.0;
+    }
+
+    @Override
+    public String cityAt(int i) {
+        return names[i];
+    }
+
+    @Override
+    public synchronized int indexOf(String city) {
+        // Built on first use, most runs never look cities up by name
+        if (index == null) {
+            index = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) index.put(names[i], i);
+        }
+        Integer i = index.get(city);
+        return i == null ? -1 : i;
+    }
+
+    /* Returns the x coordinate of city i (radians of latitude for GEO). */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /* Returns the y coordinate of city i (radians of longitude for GEO). */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /* Returns the edge weight type of the instance. */
+    public EdgeWeightType getType() {
+        return type;
+    }
+}
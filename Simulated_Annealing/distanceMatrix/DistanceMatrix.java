@@ -1,59 +1,56 @@
 package distanceMatrix;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.HashMap;
+import java.util.List;
 
-/* A distance matrix with an ArrayList of all cities and an ArrayList of ArrayLists of Integers
- * representing the lines and rows of distances as shown in the file.
+/* A distance matrix with an ArrayList of all cities and a flat int[] holding the full
+ * symmetric n x n matrix of distances in row-major order, so that distance(i, j) is a
+ * single array access. City names are mapped to indices once, when the matrix is built.
  */
 
-public class DistanceMatrix {
+public class DistanceMatrix implements Distances {
+
+    /* Largest number of cities whose full matrix fits in one int[] (n * n <= Integer.MAX_VALUE). */
+    static final int MAX_CITIES = 46340;
 
     private ArrayList<String> cities;
-    private ArrayList<ArrayList<Integer>> distances;
+    private HashMap<String, Integer> index;
+    private int n;
+    private int[] distances;
+
+    // Index of the first city with each initial, built on first use
+    private HashMap<Character, Integer> initialIndex;
 
-    /* Creates a new distance matrix given a file in the indicated format. */
+    /* Creates a new distance matrix given a file in the indicated format (or in the binary
+     * format of DistanceMatrixLoader). Fails with an UncheckedIOException if it cannot be read. */
     public DistanceMatrix(String fileName) {
-        cities = new ArrayList<>();
-        distances = new ArrayList<>();
-        Scanner sc = null;
-        try {
-            sc = new Scanner(new BufferedReader(new FileReader(fileName)));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        String[] line = sc.nextLine().trim().split("\\s+");
-        cities.add(line[1]);
-        while(sc.hasNextLine()) {
-            ArrayList<Integer> list = new ArrayList<>();
-            line = sc.nextLine().trim().split("\\s+");
-            for (int i = 1; i < line.length; i++) {
-                if (i==line.length-1) {
-                    cities.add(line[i]);
-                }
-                else {
-                    list.add(Integer.parseInt(line[i]));
-                }
+        DistanceMatrix m = DistanceMatrixLoader.load(fileName);
+        cities = m.cities;
+        index = m.index;
+        n = m.n;
+        distances = m.distances;
+    }
+
+    /* Creates a distance matrix from its cities and the packed lower triangle of distances,
+     * where row i holds the distances from city i to cities 0..i-1. */
+    DistanceMatrix(ArrayList<String> cityList, int[] packed) {
+        cities = cityList;
+        init();
+        int k = 0;
+        for (int i=1; i<n; i++) {
+            for (int j=0; j<i; j++) {
+                set(i, j, packed[k++]);
             }
-            distances.add(list);
         }
     }
 
     /* Creates a distance matrix given another and a list of cities occurring in it.
-     * Assumes that the list of cities follows the order given in the original matrix. */
+     * Assumes that the list of cities follows the order given in the original matrix.
+     * The distances are copied; subset() gives a view that shares them instead. */
     public DistanceMatrix(DistanceMatrix m, ArrayList<String> cityList) {
         cities = cityList;
-        distances = new ArrayList<>();
-        for (int i=1; i<cities.size();i++) {
-            ArrayList<Integer> list = new ArrayList<>();
-            for (int j=0; j<i;j++) {
-            	list.add(m.distance(cityList.get(i),cityList.get(j)));
-            }
-            distances.add(list);
-        }
+        fillFrom(m);
     }
     
 
@@ -61,24 +58,114 @@ public class DistanceMatrix {
     String provides the initials of a list of cities in the order of the original matrix. */
     public DistanceMatrix(DistanceMatrix m, String initials) {
     	cities = m.getCities(initials);
-        distances = new ArrayList<>();
-        for (int i=1; i<cities.size();i++) {
-            ArrayList<Integer> list = new ArrayList<>();
-            for (int j=0; j<i;j++) {
-            	list.add(m.distance(cities.get(i),cities.get(j)));
+        fillFrom(m);
+    }
+
+    /* Private: builds the name -> index map and allocates the flat matrix for the current cities. */
+    private void init() {
+        n = cities.size();
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("Too many cities for a full distance matrix: " + n);
+        }
+        index = new HashMap<>(n * 2);
+        for (int i=0; i<n; i++) {
+            index.put(cities.get(i), i);
+        }
+        distances = new int[n * n];
+    }
+
+    /* Private: copies the distances of the current cities from another matrix, resolving
+     * each city name only once. */
+    private void fillFrom(DistanceMatrix m) {
+        init();
+        int[] parentIndex = new int[n];
+        for (int i=0; i<n; i++) {
+            parentIndex[i] = m.indexOf(cities.get(i));
+        }
+        for (int i=1; i<n; i++) {
+            for (int j=0; j<i; j++) {
+                set(i, j, m.distance(parentIndex[i], parentIndex[j]));
             }
-            distances.add(list);
         }
     }
 
-    /* Returns the distance between two given cities. */
+    /* Private: stores a symmetric distance. */
+    private void set(int i, int j, int d) {
+        distances[i * n + j] = d;
+        distances[j * n + i] = d;
+    }
+
+    /* Returns the distance between the cities with indices i and j. */
+    @Override
+    public int distance(int i, int j) {
+        return distances[i * n + j];
+    }
+
+    /* Returns the index of the given city, or -1 if it is not in the matrix. */
+    @Override
+    public int indexOf(String city) {
+        Integer i = index.get(city);
+        return i == null ? -1 : i;
+    }
+
+    /* Returns the name of the city with index i. */
+    @Override
+    public String cityAt(int i) {
+        return cities.get(i);
+    }
+
+    /* Returns the number of cities in the matrix. */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /* Returns the distance between two given cities. Kept for compatibility, prefer distance(int, int). */
     public Integer distance(String city1, String city2) {
-        int indexC1 = cities.indexOf(city1);
-        int indexC2 = cities.indexOf(city2);
-        if (indexC1<indexC2)
-            return distances.get(indexC2-1).get(indexC1);
-        else
-            return distances.get(indexC1-1).get(indexC2);
+        return distance(require(city1), require(city2));
+    }
+
+    /* Private: returns the index of the given city, failing if it is not in the matrix. */
+    private int require(String city) {
+        int i = indexOf(city);
+        if (i < 0) throw new IllegalArgumentException("Unknown city: " + city);
+        return i;
+    }
+
+    /* Returns a view of the given cities of this matrix, in the given order. Views share the
+     * distances of the matrix, so a subset costs O(k) for k cities. They are not cached here:
+     * callers that reuse a subset keep its view (see SA.InstanceCache). */
+    public SubInstance subset(List<String> cityList) {
+        int[] idx = new int[cityList.size()];
+        for (int i=0; i<idx.length; i++) {
+            idx[i] = indexOf(cityList.get(i));
+            if (idx[i] < 0) throw new IllegalArgumentException("Unknown city: " + cityList.get(i));
+        }
+        return subset(idx);
+    }
+
+    /* Returns a view of the cities with the given initials, in the given order (see subset(List)). */
+    public SubInstance subset(String initials) {
+        synchronized (this) {
+            if (initialIndex == null) {
+                initialIndex = new HashMap<>(n * 2);
+                for (int i=0; i<n; i++) {
+                    initialIndex.putIfAbsent(cities.get(i).charAt(0), i);
+                }
+            }
+        }
+        int[] idx = new int[initials.length()];
+        for (int i=0; i<idx.length; i++) {
+            Integer c = initialIndex.get(initials.charAt(i));
+            if (c == null) throw new IllegalArgumentException("No city with initial " + initials.charAt(i));
+            idx[i] = c;
+        }
+        return subset(idx);
+    }
+
+    /* Private: returns a view of the given city indices. */
+    private SubInstance subset(int[] idx) {
+        return new SubInstance(this, idx);
     }
 
     /* Returns the list of cities*/
@@ -110,9 +197,18 @@ public class DistanceMatrix {
     	return initials;
     }
 
-    /* Returns the distances*/
+    /* Returns the distances in the lower-triangular layout of the file (row i-1 holds the
+     * distances from city i to cities 0..i-1). Built on demand from the flat matrix. */
     public ArrayList<ArrayList<Integer>> getDistances() {
-        return distances;
+        ArrayList<ArrayList<Integer>> rows = new ArrayList<>();
+        for (int i=1; i<n; i++) {
+            ArrayList<Integer> list = new ArrayList<>();
+            for (int j=0; j<i; j++) {
+                list.add(distance(i, j));
+            }
+            rows.add(list);
+        }
+        return rows;
     }
 
     /* Private: shows all cities in the matrix (but the last) for the sake of showing the distance matrix. */
@@ -129,14 +225,14 @@ public class DistanceMatrix {
     }
 
     /* Private: shows all distances in a row in the matrix with adequate sizes to fit the columns */
-    private String showRow(Integer index) {
+    private String showRow(int row) {
         StringBuilder sb = new StringBuilder();
         sb.append("[");
-        for (int i=0;i<distances.get(index).size();i++) {
+        for (int i=0;i<=row;i++) {
             int l = cities.get(i).length();
-            int d = distances.get(index).get(i);
+            int d = distance(row+1, i);
             sb.append(String.format("%1$"+l+"s",d));
-            if (i<distances.get(index).size()-1)
+            if (i<row)
                sb.append(", ");
         }
         sb.append("]");
@@ -147,7 +243,7 @@ public class DistanceMatrix {
     public void showDistances() {
         System.out.print("           ");
         this.showCities();
-        for (int i=0;i<distances.size();i++) {
+        for (int i=0;i<n-1;i++) {
            System.out.println(String.format("%1$10s" + " " + this.showRow(i),cities.get(i+1)));
         }
     }
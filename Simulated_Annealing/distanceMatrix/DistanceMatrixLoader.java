@@ -0,0 +1,257 @@
+package distanceMatrix;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/* Loads distance matrices from the text format of distancias.txt and from a compact binary
+ * format. The text parser works directly on bytes (no Scanner, split or parseInt per token).
+ * The binary format is a header followed by the packed lower triangle of the matrix and is
+ * read through a memory-mapped buffer, so repeated runs do not parse anything:
+ *
+ *   int    magic ("DMAT")
+ *   int    version
+ *   int    n (number of cities)
+ *   n x    (unsigned short length, UTF-8 bytes) city names
+ *   n(n-1)/2 x int  distances, row i holding the distances from city i to cities 0..i-1
+ *
+ * All values are big-endian.
+ */
+
+public class DistanceMatrixLoader {
+
+    private static final int MAGIC = 0x444D4154; // "DMAT"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_NAME_LENGTH = 0xFFFF;
+
+    /* Loads a matrix from a text or binary file, detecting the format from its first bytes. */
+    public static DistanceMatrix load(String fileName) {
+        try {
+            return isBinary(fileName) ? readBinary(fileName) : readText(fileName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load distance matrix " + fileName, e);
+        }
+    }
+
+    /* Returns true if the file starts with the binary format magic number. */
+    public static boolean isBinary(String fileName) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            byte[] b = new byte[4];
+            return in.read(b) == 4 && ByteBuffer.wrap(b).getInt() == MAGIC;
+        }
+    }
+
+    /* Parses the text format: a header line "<label> <first city>" followed by one line per
+     * city i >= 1 of the form "<label> d(i,0) ... d(i,i-1) <city>". As in the original Scanner
+     * parser, the last token of a line is the city name, so names may be numbers. */
+    public static DistanceMatrix readText(String fileName) throws IOException {
+        ArrayList<String> cities = new ArrayList<>();
+        int[] packed = new int[1024];
+        int size = 0;
+
+        byte[] token = new byte[64];
+        int tokenLength = 0;
+        // Previous token of the line: a distance if another token follows it, else the name
+        byte[] pending = new byte[64];
+        int pendingLength = -1;
+        int line = 1;
+        int tokensInLine = 0;
+        int numbersInLine = 0;
+
+        try (InputStream in = new FileInputStream(fileName)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int read;
+            boolean eof = false;
+            while (!eof) {
+                read = in.read(buf);
+                if (read < 0) {
+                    // Treat the end of the file as a final line break
+                    eof = true;
+                    buf[0] = '\n';
+                    read = 1;
+                }
+                for (int p = 0; p < read; p++) {
+                    byte c = buf[p];
+                    if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                        if (tokenLength == token.length) token = Arrays.copyOf(token, tokenLength * 2);
+                        token[tokenLength++] = c;
+                        continue;
+                    }
+
+                    // End of a token (the first one is the row label, which is skipped)
+                    if (tokenLength > 0) {
+                        if (tokensInLine > 0) {
+                            if (pendingLength >= 0) {
+                                int value = parseNumber(pending, pendingLength);
+                                if (value < 0) {
+                                    throw new IllegalArgumentException(fileName + ":" + line + ": invalid distance "
+                                            + new String(pending, 0, pendingLength, StandardCharsets.UTF_8));
+                                }
+                                if (size == packed.length) packed = Arrays.copyOf(packed, size * 2);
+                                packed[size++] = value;
+                                numbersInLine++;
+                            }
+                            byte[] previous = pending;
+                            pending = token;
+                            pendingLength = tokenLength;
+                            token = previous;
+                        }
+                        tokensInLine++;
+                        tokenLength = 0;
+                    }
+
+                    // End of a line
+                    if (c == '\n') {
+                        if (tokensInLine > 0) {
+                            if (pendingLength < 0) {
+                                throw new IllegalArgumentException(fileName + ":" + line + ": missing city name");
+                            }
+                            if (numbersInLine != cities.size()) {
+                                throw new IllegalArgumentException(fileName + ":" + line + ": expected "
+                                        + cities.size() + " distances but found " + numbersInLine);
+                            }
+                            cities.add(new String(pending, 0, pendingLength, StandardCharsets.UTF_8));
+                        }
+                        line++;
+                        tokensInLine = 0;
+                        numbersInLine = 0;
+                        pendingLength = -1;
+                    }
+                }
+            }
+        }
+        if (cities.isEmpty()) throw new IllegalArgumentException(fileName + ": no cities found");
+        return new DistanceMatrix(cities, packed);
+    }
+
+    /* Private: parses a non-negative decimal number, returning -1 if the token is not one or
+     * does not fit in an int. */
+    private static int parseNumber(byte[] token, int length) {
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int d = token[i] - '0';
+            if (d < 0 || d > 9 || value > (Integer.MAX_VALUE - d) / 10) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /* Reads a matrix in the binary format by memory-mapping the file. A file that is shorter or
+     * longer than its header says (a truncated one, for instance) fails with an IOException. */
+    public static DistanceMatrix readBinary(String fileName) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.remaining() < HEADER_SIZE) throw truncated(fileName);
+            if (buf.getInt() != MAGIC) throw new IllegalArgumentException(fileName + ": not a binary distance matrix");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IllegalArgumentException(fileName + ": unsupported version " + version);
+            int n = buf.getInt();
+            if (n < 1) throw new IllegalArgumentException(fileName + ": invalid number of cities " + n);
+            int distances = packedSize(n);
+            // Checked before allocating anything, the names take at least 2 bytes each
+            if (buf.remaining() < 2L * n + 4L * distances) throw truncated(fileName);
+            int[] packed = new int[distances];
+            ArrayList<String> cities = new ArrayList<>(n);
+            byte[] name = new byte[256];
+            for (int i = 0; i < n; i++) {
+                if (buf.remaining() < 2) throw truncated(fileName);
+                int length = buf.getShort() & 0xFFFF;
+                if (buf.remaining() < length) throw truncated(fileName);
+                if (length > name.length) name = new byte[length];
+                buf.get(name, 0, length);
+                cities.add(new String(name, 0, length, StandardCharsets.UTF_8));
+            }
+            if (buf.remaining() < 4L * packed.length) throw truncated(fileName);
+            if (buf.remaining() > 4L * packed.length) {
+                throw new IOException(fileName + ": " + (buf.remaining() - 4L * packed.length) + " unexpected bytes after the distances");
+            }
+            buf.asIntBuffer().get(packed);
+            return new DistanceMatrix(cities, packed);
+        }
+    }
+
+    /* Private: the error for a binary file that ends before its header says it does. */
+    private static IOException truncated(String fileName) {
+        return new EOFException(fileName + ": truncated binary distance matrix");
+    }
+
+    /* Writes a matrix in the binary format. The file is written next to its target and then
+     * renamed over it, so an interrupted write never leaves a partial matrix behind. City names
+     * must be at most 65535 bytes long in UTF-8. */
+    public static void writeBinary(DistanceMatrix m, String fileName) throws IOException {
+        int n = m.size();
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Large enough for the longest name
+            ByteBuffer buf = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, 2 + MAX_NAME_LENGTH));
+            buf.putInt(MAGIC).putInt(VERSION).putInt(n);
+            for (int i = 0; i < n; i++) {
+                byte[] name = m.cityAt(i).getBytes(StandardCharsets.UTF_8);
+                if (name.length > MAX_NAME_LENGTH) {
+                    throw new IllegalArgumentException("City name longer than " + MAX_NAME_LENGTH + " bytes: city " + i);
+                }
+                if (buf.remaining() < 2 + name.length) flush(ch, buf);
+                buf.putShort((short) name.length).put(name);
+            }
+            for (int i = 1; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    if (buf.remaining() < 4) flush(ch, buf);
+                    buf.putInt(m.distance(i, j));
+                }
+            }
+            flush(ch, buf);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Some file systems cannot replace atomically
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /* Private: writes the buffered bytes to the channel and clears the buffer. */
+    private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+
+    /* Returns the number of distances in the packed lower triangle of an n-city matrix, failing
+     * if the full matrix would not fit in a DistanceMatrix. */
+    static int packedSize(int n) {
+        if (n > DistanceMatrix.MAX_CITIES) throw new IllegalArgumentException("Too many cities: " + n);
+        return (int) ((long) n * (n - 1) / 2);
+    }
+
+    /* Converts a text matrix to the binary format: DistanceMatrixLoader <input.txt> <output.bin> */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: DistanceMatrixLoader <input.txt> <output.bin>");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        DistanceMatrix m = readText(args[0]);
+        writeBinary(m, args[1]);
+        System.out.println("Converted " + m.size() + " cities in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
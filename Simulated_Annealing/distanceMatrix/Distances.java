@@ -0,0 +1,21 @@
+package distanceMatrix;
+
+/* A symmetric TSP instance as seen by the solver: cities are identified by their index
+ * 0..size()-1 and distance(i, j) returns the integer distance between two of them.
+ * Implementations are read-only once built, so one instance can be shared by many threads.
+ */
+
+public interface Distances {
+
+    /* Returns the number of cities. */
+    int size();
+
+    /* Returns the distance between the cities with indices i and j. */
+    int distance(int i, int j);
+
+    /* Returns the name of the city with index i. */
+    String cityAt(int i);
+
+    /* Returns the index of the given city, or -1 if it is not in the instance. */
+    int indexOf(String city);
+}
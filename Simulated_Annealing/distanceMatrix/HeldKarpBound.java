@@ -0,0 +1,466 @@
+package distanceMatrix;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/* Held-Karp lower bound of the length of every tour of an instance.
+ *
+ * A 1-tree is a spanning tree of the cities other than city 0 plus the two shortest edges of
+ * city 0; every tour is a 1-tree, so the lightest 1-tree is a lower bound. Adding a penalty
+ * p[i] to every edge of city i adds 2 * sum(p) to every tour but not to every 1-tree, so
+ * (lightest 1-tree with penalties) - 2 * sum(p) is a bound for any p. Subgradient optimization
+ * raises the penalties of the cities of degree above 2 in the 1-tree and lowers the others,
+ * which pushes the 1-tree towards a tour and the bound up, usually to within 1% of the optimum
+ * on metric instances.
+ *
+ * Up to EXACT_LIMIT cities the 1-trees span the complete graph (O(n^2) per iteration). Above,
+ * the optimization runs on the graph of the CANDIDATES nearest neighbors of every city, as in
+ * LKH. A spanning tree of that graph can be heavier than the lightest one of the complete graph,
+ * so its 1-trees prove nothing by themselves: up to PROOF_LIMIT cities the best penalties are
+ * then evaluated once more with a 1-tree of the complete graph (O(n^2) time, O(n) memory), which
+ * is a proven bound again. Above PROOF_LIMIT the bound is only an estimate (see isExact).
+ *
+ * Bounds are computed once per instance and cached as long as the instance is in use.
+ */
+
+public class HeldKarpBound {
+
+    private static final int EXACT_LIMIT = 1000;
+    private static final int PROOF_LIMIT = 50_000;
+    private static final int CANDIDATES = 10;
+
+    // Subgradient steps: t = lambda * (upper - lower) / |g|^2, lambda halved after PATIENCE
+    // iterations without a better bound, until it drops below MIN_LAMBDA
+    private static final int MAX_ITERATIONS = 1000;
+    private static final int PATIENCE = 15;
+    private static final double MIN_LAMBDA = 1e-2;
+
+    private static final Map<Distances, CompletableFuture<HeldKarpBound>> CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final int n;
+    private Distances m; // only during the computation, the cache must not keep the instance alive
+    private long bound;
+    private long upperBound;
+    private int iterations;
+    private boolean exact;
+    private boolean optimal;
+
+    // Distances of the complete graph, row-major (exact mode)
+    private int[] dist;
+
+    // Sparse graph of the candidates (both directions), in compressed rows
+    private int[] adjStart;
+    private int[] adj;
+    private int[] adjWeight;
+
+    private HeldKarpBound(Distances m) {
+        this.m = m;
+        this.n = m.size();
+        compute();
+        this.m = null;
+        this.dist = null;
+        this.adjStart = null;
+        this.adj = null;
+        this.adjWeight = null;
+    }
+
+    /* Returns the bound of an instance, computing it on first use. */
+    public static HeldKarpBound of(Distances m) {
+        return computeAsync(m).join();
+    }
+
+    /* Returns the bound of an instance as a future, starting its computation in the background
+     * (common fork-join pool) on first use. */
+    public static CompletableFuture<HeldKarpBound> computeAsync(Distances m) {
+        return CACHE.computeIfAbsent(m, key -> CompletableFuture.supplyAsync(() -> new HeldKarpBound(key)));
+    }
+
+    /* Returns the lower bound: no tour of the instance is shorter if isExact(), otherwise an estimate. */
+    public long getBound() {
+        return bound;
+    }
+
+    /* Returns the length of the nearest neighbor tour used to size the subgradient steps. */
+    public long getUpperBound() {
+        return upperBound;
+    }
+
+    /* Returns the number of subgradient iterations. */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /* Returns true if the bound comes from a 1-tree of the complete graph, so it is proven. */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /* Returns true if the last 1-tree was a tour, whose length is then the optimum. */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /* Returns the gap of a tour length to the bound, in percent of the bound. */
+    public double gap(long cost) {
+        return bound <= 0 ? Double.NaN : 100.0 * (cost - bound) / bound;
+    }
+
+    /* Private: subgradient optimization of the penalties. */
+    private void compute() {
+        boolean complete = n <= EXACT_LIMIT;
+        this.exact = true;
+        if (n < 3) {
+            // The only tour goes to the other city and back
+            this.bound = n == 2 ? 2L * m.distance(0, 1) : 0;
+            this.upperBound = this.bound;
+            this.optimal = true;
+            return;
+        }
+        if (complete) {
+            // Read every distance once instead of once per iteration
+            this.dist = new int[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) dist[i * n + j] = m.distance(i, j);
+            }
+        } else {
+            buildGraph(CandidateLists.build(m, CANDIDATES));
+        }
+        this.upperBound = nearestNeighborLength(complete);
+
+        double[] pi = new double[n];
+        double[] bestPi = new double[n];
+        int[] degree = new int[n];
+        double best = Double.NEGATIVE_INFINITY;
+        double lambda = 2.0;
+        int sinceBetter = 0;
+        for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+            double lower = (complete ? completeOneTree(pi, degree) : sparseOneTree(pi, degree));
+            for (double p : pi) lower -= 2 * p;
+            if (lower > best + 1e-9) {
+                best = lower;
+                System.arraycopy(pi, 0, bestPi, 0, n);
+                sinceBetter = 0;
+            } else if (++sinceBetter >= PATIENCE) {
+                lambda /= 2;
+                sinceBetter = 0;
+                if (lambda < MIN_LAMBDA) break;
+            }
+
+            long norm = 0;
+            for (int d : degree) norm += (long) (d - 2) * (d - 2);
+            if (norm == 0) {
+                // Every city has degree 2: the 1-tree is a tour, and no tour is shorter
+                this.optimal = complete;
+                break;
+            }
+            if (lower >= upperBound) break;
+            double t = lambda * (upperBound - lower) / norm;
+            for (int i = 0; i < n; i++) pi[i] += t * (degree[i] - 2);
+        }
+        if (!complete) {
+            if (n <= PROOF_LIMIT) {
+                // The best penalties on the complete graph: a proven bound, at most the sparse one
+                best = provenOneTree(bestPi);
+                for (double p : bestPi) best -= 2 * p;
+            } else {
+                this.exact = false;
+            }
+        }
+        // Tour lengths are integers, so the bound can be rounded up
+        this.bound = (long) Math.ceil(best - 1e-6);
+    }
+
+    /* Private: weight of the lightest 1-tree with penalties over the complete graph, reading the
+     * distances from the instance (Prim's algorithm with a linear scan, O(n) memory). */
+    private double provenOneTree(double[] pi) {
+        double[] key = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        double total = 0;
+        int u = 1;
+        key[u] = 0;
+        for (int count = 1; count < n; count++) {
+            inTree[u] = true;
+            total += key[u];
+            int next = -1;
+            double nextKey = Double.POSITIVE_INFINITY;
+            double pu = pi[u];
+            for (int v = 1; v < n; v++) {
+                if (inTree[v]) continue;
+                double d = m.distance(u, v) + pu + pi[v];
+                if (d < key[v]) key[v] = d;
+                if (key[v] < nextKey) {
+                    nextKey = key[v];
+                    next = v;
+                }
+            }
+            u = next;
+        }
+        double first = Double.POSITIVE_INFINITY, second = Double.POSITIVE_INFINITY;
+        for (int v = 1; v < n; v++) {
+            double d = m.distance(0, v) + pi[0] + pi[v];
+            if (d < first) {
+                second = first;
+                first = d;
+            } else if (d < second) {
+                second = d;
+            }
+        }
+        return total + first + second;
+    }
+
+    /* Private: weight of the lightest 1-tree with penalties over the complete graph (Prim's
+     * algorithm with a linear scan), writing the degree of every city. */
+    private double completeOneTree(double[] pi, int[] degree) {
+        Arrays.fill(degree, 0);
+        double[] key = new double[n];
+        int[] parent = new int[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        double total = 0;
+        int u = 1;
+        key[u] = 0;
+        parent[u] = -1;
+        for (int count = 1; count < n; count++) {
+            inTree[u] = true;
+            total += key[u];
+            if (parent[u] >= 0) {
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            int next = -1;
+            double nextKey = Double.POSITIVE_INFINITY;
+            int row = u * n;
+            double pu = pi[u];
+            for (int v = 1; v < n; v++) {
+                if (inTree[v]) continue;
+                double d = dist[row + v] + pu + pi[v];
+                if (d < key[v]) {
+                    key[v] = d;
+                    parent[v] = u;
+                }
+                if (key[v] < nextKey) {
+                    nextKey = key[v];
+                    next = v;
+                }
+            }
+            u = next;
+        }
+        // City 0 joins through its two shortest edges
+        double first = Double.POSITIVE_INFINITY, second = Double.POSITIVE_INFINITY;
+        int a = -1, b = -1;
+        for (int v = 1; v < n; v++) {
+            double d = dist[v] + pi[0] + pi[v];
+            if (d < first) {
+                second = first;
+                b = a;
+                first = d;
+                a = v;
+            } else if (d < second) {
+                second = d;
+                b = v;
+            }
+        }
+        degree[0] = 2;
+        degree[a]++;
+        degree[b]++;
+        return total + first + second;
+    }
+
+    /* Private: weight of the lightest 1-tree with penalties over the candidate graph (Prim's
+     * algorithm with an indexed heap). A city the graph cannot reach joins the tree through
+     * its shortest edge to it, found by a scan. */
+    private double sparseOneTree(double[] pi, int[] degree) {
+        Arrays.fill(degree, 0);
+        double[] key = new double[n];
+        int[] parent = new int[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        int[] heap = new int[n];
+        int[] pos = new int[n];
+        Arrays.fill(pos, -1);
+        int size = 0;
+        inTree[0] = true; // city 0 is not part of the spanning tree
+        double total = 0;
+        key[1] = 0;
+        heap[size] = 1;
+        pos[1] = size++;
+        for (int count = 1; count < n; count++) {
+            int u;
+            if (size == 0) {
+                u = closestOutside(inTree, pi, key, parent);
+            } else {
+                u = heap[0];
+                heap[0] = heap[--size];
+                pos[heap[0]] = 0;
+                siftDown(heap, pos, key, size, 0);
+                pos[u] = -1;
+            }
+            inTree[u] = true;
+            total += key[u];
+            if (parent[u] >= 0) {
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            for (int e = adjStart[u]; e < adjStart[u + 1]; e++) {
+                int v = adj[e];
+                if (inTree[v]) continue;
+                double d = adjWeight[e] + pi[u] + pi[v];
+                if (d < key[v]) {
+                    key[v] = d;
+                    parent[v] = u;
+                    if (pos[v] < 0) {
+                        heap[size] = v;
+                        pos[v] = size++;
+                    }
+                    siftUp(heap, pos, key, pos[v]);
+                }
+            }
+        }
+        double first = Double.POSITIVE_INFINITY, second = Double.POSITIVE_INFINITY;
+        int a = -1, b = -1;
+        for (int e = adjStart[0]; e < adjStart[1]; e++) {
+            int v = adj[e];
+            double d = adjWeight[e] + pi[0] + pi[v];
+            if (d < first) {
+                second = first;
+                b = a;
+                first = d;
+                a = v;
+            } else if (d < second) {
+                second = d;
+                b = v;
+            }
+        }
+        degree[0] = 2;
+        degree[a]++;
+        degree[b]++;
+        return total + first + second;
+    }
+
+    /* Private: the first city outside the tree, with its key and parent set to its shortest edge
+     * to the tree (the heap is empty, so no outside city has a key yet). */
+    private int closestOutside(boolean[] inTree, double[] pi, double[] key, int[] parent) {
+        int v = 1;
+        while (inTree[v]) v++;
+        for (int u = 1; u < n; u++) {
+            if (!inTree[u]) continue;
+            double d = m.distance(u, v) + pi[u] + pi[v];
+            if (d < key[v]) {
+                key[v] = d;
+                parent[v] = u;
+            }
+        }
+        return v;
+    }
+
+    /* Private: moves the city at heap position i up to its place (min-heap on key). */
+    private static void siftUp(int[] heap, int[] pos, double[] key, int i) {
+        int c = heap[i];
+        while (i > 0) {
+            int p = (i - 1) / 2;
+            if (key[heap[p]] <= key[c]) break;
+            heap[i] = heap[p];
+            pos[heap[i]] = i;
+            i = p;
+        }
+        heap[i] = c;
+        pos[c] = i;
+    }
+
+    /* Private: moves the city at heap position i down to its place. */
+    private static void siftDown(int[] heap, int[] pos, double[] key, int size, int i) {
+        if (size == 0) return;
+        int c = heap[i];
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) break;
+            int r = l + 1;
+            int s = r < size && key[heap[r]] < key[heap[l]] ? r : l;
+            if (key[heap[s]] >= key[c]) break;
+            heap[i] = heap[s];
+            pos[heap[i]] = i;
+            i = s;
+        }
+        heap[i] = c;
+        pos[c] = i;
+    }
+
+    /* Private: the candidate graph with the edges of both directions, each once per city. */
+    private void buildGraph(CandidateLists lists) {
+        int k = lists.size();
+        int[] count = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            for (int r = 0; r < k; r++) {
+                int j = lists.get(i, r);
+                count[i + 1]++;
+                if (!isCandidate(lists, j, i)) count[j + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) count[i + 1] += count[i];
+        this.adjStart = count;
+        this.adj = new int[count[n]];
+        this.adjWeight = new int[count[n]];
+        int[] fill = Arrays.copyOf(count, n);
+        for (int i = 0; i < n; i++) {
+            for (int r = 0; r < k; r++) {
+                int j = lists.get(i, r);
+                int d = m.distance(i, j);
+                adj[fill[i]] = j;
+                adjWeight[fill[i]++] = d;
+                if (!isCandidate(lists, j, i)) {
+                    adj[fill[j]] = i;
+                    adjWeight[fill[j]++] = d;
+                }
+            }
+        }
+    }
+
+    /* Private: true if j is a candidate of i. */
+    private static boolean isCandidate(CandidateLists lists, int i, int j) {
+        for (int r = 0; r < lists.size(); r++) {
+            if (lists.get(i, r) == j) return true;
+        }
+        return false;
+    }
+
+    /* Private: length of the nearest neighbor tour from city 0, through the candidate graph
+     * when there is one (a scan of the unvisited cities when all neighbors are visited). */
+    private long nearestNeighborLength(boolean complete) {
+        boolean[] visited = new boolean[n];
+        int city = 0;
+        visited[0] = true;
+        long length = 0;
+        for (int step = 1; step < n; step++) {
+            int next = -1;
+            int best = Integer.MAX_VALUE;
+            if (!complete) {
+                for (int e = adjStart[city]; e < adjStart[city + 1]; e++) {
+                    if (!visited[adj[e]] && adjWeight[e] < best) {
+                        best = adjWeight[e];
+                        next = adj[e];
+                    }
+                }
+            }
+            if (next < 0) {
+                for (int v = 0; v < n; v++) {
+                    if (visited[v]) continue;
+                    int d = m.distance(city, v);
+                    if (d < best) {
+                        best = d;
+                        next = v;
+                    }
+                }
+            }
+            visited[next] = true;
+            length += best;
+            city = next;
+        }
+        return length + m.distance(city, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package distanceMatrix;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/* A subset of the cities of another instance, seen as an instance of its own. It only holds
+ * the indices of its cities in the parent and reads every distance from the parent's storage,
+ * so creating one costs O(k) for k cities and no distance is copied. The parent must not
+ * change while the view is in use (instances are read-only once built).
+ */
+
+public class SubInstance implements Distances {
+
+    private final Distances parent;
+    private final int[] cities; // cities[i] = index in the parent of city i of the view
+    private HashMap<String, Integer> index;
+
+    /* Creates a view of the given cities of the parent, in the given order. Each city may only
+     * appear once, a tour of the view could not visit it twice. */
+    public SubInstance(Distances parent, int[] cities) {
+        HashSet<Integer> seen = new HashSet<>(cities.length * 2);
+        for (int c : cities) {
+            if (c < 0 || c >= parent.size()) throw new IllegalArgumentException("City index out of range: " + c);
+            if (!seen.add(c)) throw new IllegalArgumentException("Repeated city: " + parent.cityAt(c));
+        }
+        this.parent = parent;
+        this.cities = cities.clone();
+    }
+
+    @Override
+    public int size() {
+        return cities.length;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        return parent.distance(cities[i], cities[j]);
+    }
+
+    @Override
+    public String cityAt(int i) {
+        return parent.cityAt(cities[i]);
+    }
+
+    @Override
+    public synchronized int indexOf(String city) {
+        // Built on first use, most runs never look cities up by name
+        if (index == null) {
+            index = new HashMap<>(cities.length * 2);
+            for (int i = 0; i < cities.length; i++) index.put(parent.cityAt(cities[i]), i);
+        }
+        Integer i = index.get(city);
+        return i == null ? -1 : i;
+    }
+
+    /* Returns the instance the cities are taken from. */
+    public Distances getParent() {
+        return parent;
+    }
+
+    /* Returns the index in the parent of city i. */
+    public int parentIndex(int i) {
+        return cities[i];
+    }
+}
@@ -0,0 +1,25 @@
+package moves;
+
+import distanceMatrix.Distances;
+import Solutions.Solution;
+import java.util.random.RandomGenerator;
+
+/* A neighborhood move of the annealer. A move is proposed first, returning its cost delta
+ * computed in constant time, and only applied to the solution if it is accepted.
+ * Operators remember their last proposal, so every annealer needs its own instances.
+ */
+public interface MoveOperator {
+
+    // Proposes a random move on the solution and returns its cost delta, without applying it
+    int propose(Solution s, Distances m, RandomGenerator rng);
+
+    // Applies the last proposed move in place and updates the solution cost by delta
+    void apply(Solution s, int delta);
+
+    // Returns the name of the operator, as used in operator specifications
+    String getName();
+
+    // Restricts the city every proposal starts from to the given ones (null = any city). The
+    // rest of the move may still reach any city, e.g. through the candidate lists.
+    void setFocus(int[] cities);
+}
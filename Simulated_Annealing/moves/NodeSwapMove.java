@@ -0,0 +1,75 @@
+package moves;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import Solutions.Solution;
+import java.util.random.RandomGenerator;
+
+// Node swap: exchanges the positions of two cities in the tour
+public class NodeSwapMove implements MoveOperator {
+
+    private final CandidateLists candidates;
+
+    // Cities of the last proposed move (-1 = no valid move)
+    private int u;
+    private int v;
+
+    // Cities the proposals start from (null = any city)
+    private int[] focus;
+
+    public NodeSwapMove(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public int propose(Solution s, Distances m, RandomGenerator rng) {
+        int n = s.size();
+        this.u = -1;
+        if (n < 4) return 0; // every swap is a rotation or a reflection of the tour
+
+        int a = this.focus == null ? rng.nextInt(n) : this.focus[rng.nextInt(this.focus.length)];
+        int b;
+        if (this.candidates == null) {
+            b = (a + 1 + rng.nextInt(n - 1)) % n;
+        } else {
+            // Move a next to one of its nearest neighbors w by swapping it with a neighbor of w
+            int w = this.candidates.get(a, rng.nextInt(this.candidates.size()));
+            b = rng.nextBoolean() ? s.next(w) : s.prev(w);
+            if (b == a) return 0;
+        }
+
+        // Orient the pair so that, if the cities are adjacent, b follows a
+        if (s.next(b) == a) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        this.u = a;
+        this.v = b;
+
+        int pa = s.prev(a), na = s.next(a);
+        int pb = s.prev(b), nb = s.next(b);
+        if (na == b) {
+            // ... pa a b nb ... -> ... pa b a nb ...
+            return m.distance(pa, b) + m.distance(a, nb) - m.distance(pa, a) - m.distance(b, nb);
+        }
+        return m.distance(pa, b) + m.distance(b, na) + m.distance(pb, a) + m.distance(a, nb)
+                - m.distance(pa, a) - m.distance(a, na) - m.distance(pb, b) - m.distance(b, nb);
+    }
+
+    @Override
+    public void apply(Solution s, int delta) {
+        if (this.u < 0) return;
+        s.swap(this.u, this.v, delta);
+    }
+
+    @Override
+    public String getName() {
+        return "swap";
+    }
+
+    @Override
+    public void setFocus(int[] cities) {
+        this.focus = cities;
+    }
+}
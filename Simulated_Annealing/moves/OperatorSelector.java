@@ -0,0 +1,178 @@
+package moves;
+
+import distanceMatrix.CandidateLists;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.random.RandomGenerator;
+
+/* Chooses the move operator of each iteration, by fixed weights or adaptively.
+ *
+ * Operators are given by a specification such as "2opt:5,oropt:3,swap:1,or3opt:1"
+ * (name:weight, weight 1 if omitted). Names: 2opt, oropt (segments of up to 3 cities),
+ * or3opt (segments of any length) and swap.
+ *
+ * In adaptive mode the weights start as given and are updated every SEGMENT proposals from
+ * the average score of each operator (improving move 3, accepted worsening move 1, rejected 0),
+ * as in adaptive large neighborhood search. Weights never drop below MIN_SHARE of the total,
+ * so every operator keeps being tried.
+ */
+public class OperatorSelector {
+
+    private static final int SEGMENT = 1000;
+    private static final double REACTION = 0.2;
+    private static final double MIN_SHARE = 0.05;
+    private static final double SCORE_IMPROVED = 3.0;
+    private static final double SCORE_ACCEPTED = 1.0;
+
+    private final MoveOperator[] operators;
+    private final double[] weights;
+    private final boolean adaptive;
+
+    // Scores and uses of the current segment (adaptive mode)
+    private final double[] scores;
+    private final int[] uses;
+    private int proposals;
+
+    // Statistics of the whole run
+    private final long[] proposed;
+    private final long[] accepted;
+
+    public OperatorSelector(MoveOperator[] operators, double[] weights, boolean adaptive) {
+        if (operators.length == 0 || operators.length != weights.length) {
+            throw new IllegalArgumentException("There must be one weight per operator");
+        }
+        this.operators = operators;
+        this.weights = weights.clone();
+        this.adaptive = adaptive;
+        this.scores = new double[operators.length];
+        this.uses = new int[operators.length];
+        this.proposed = new long[operators.length];
+        this.accepted = new long[operators.length];
+    }
+
+    // Creates the operators of a specification, each with its own state
+    public static OperatorSelector parse(String spec, CandidateLists candidates, boolean adaptive) {
+        String[] parts = spec.split(",");
+        MoveOperator[] ops = new MoveOperator[parts.length];
+        double[] w = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] nameWeight = parts[i].trim().split(":");
+            ops[i] = create(nameWeight[0].trim().toLowerCase(), candidates);
+            w[i] = nameWeight.length > 1 ? Double.parseDouble(nameWeight[1].trim()) : 1.0;
+            if (w[i] <= 0) throw new IllegalArgumentException("Operator weights must be positive: " + parts[i]);
+        }
+        return new OperatorSelector(ops, w, adaptive);
+    }
+
+    // Creates one operator by name
+    public static MoveOperator create(String name, CandidateLists candidates) {
+        switch (name) {
+            case "2opt":
+                return new TwoOptMove(candidates);
+            case "oropt":
+                return new OrOptMove(candidates, 3, "oropt");
+            case "or3opt":
+                return new OrOptMove(candidates, Integer.MAX_VALUE, "or3opt");
+            case "swap":
+                return new NodeSwapMove(candidates);
+            default:
+                throw new IllegalArgumentException("Unknown move operator: " + name);
+        }
+    }
+
+    // Picks the index of the operator to use, with probability proportional to its weight
+    public int select(RandomGenerator rng) {
+        if (this.operators.length == 1) return 0;
+        double total = 0;
+        for (double w : this.weights) total += w;
+        double r = rng.nextDouble() * total;
+        for (int i = 0; i < this.weights.length - 1; i++) {
+            r -= this.weights[i];
+            if (r < 0) return i;
+        }
+        return this.weights.length - 1;
+    }
+
+    // Returns the operator with the given index
+    public MoveOperator get(int i) {
+        return this.operators[i];
+    }
+
+    // Records the outcome of a proposal of operator i
+    public void update(int i, int delta, boolean wasAccepted) {
+        this.proposed[i]++;
+        if (wasAccepted) this.accepted[i]++;
+        if (!this.adaptive) return;
+
+        this.uses[i]++;
+        if (wasAccepted) this.scores[i] += delta < 0 ? SCORE_IMPROVED : SCORE_ACCEPTED;
+        if (++this.proposals < SEGMENT) return;
+
+        // End of segment: move each weight towards the average score of its operator
+        double total = 0;
+        for (int k = 0; k < this.weights.length; k++) {
+            if (this.uses[k] > 0) {
+                this.weights[k] = (1 - REACTION) * this.weights[k] + REACTION * this.scores[k] / this.uses[k];
+            }
+            total += this.weights[k];
+            this.scores[k] = 0;
+            this.uses[k] = 0;
+        }
+        for (int k = 0; k < this.weights.length; k++) {
+            this.weights[k] = Math.max(this.weights[k], MIN_SHARE * total);
+        }
+        this.proposals = 0;
+    }
+
+    // Restricts the starting city of every operator's proposals (see MoveOperator.setFocus)
+    public void setFocus(int[] cities) {
+        for (MoveOperator op : this.operators) op.setFocus(cities);
+    }
+
+    // Writes the weights, scores and statistics (for checkpoints)
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(this.operators.length);
+        for (int i = 0; i < this.operators.length; i++) {
+            out.writeDouble(this.weights[i]);
+            out.writeDouble(this.scores[i]);
+            out.writeInt(this.uses[i]);
+            out.writeLong(this.proposed[i]);
+            out.writeLong(this.accepted[i]);
+        }
+        out.writeInt(this.proposals);
+    }
+
+    // Restores a state written by writeState() for the same operators
+    public void readState(DataInput in) throws IOException {
+        if (in.readInt() != this.operators.length) throw new IllegalArgumentException("Operator state does not match the operators");
+        for (int i = 0; i < this.operators.length; i++) {
+            this.weights[i] = in.readDouble();
+            this.scores[i] = in.readDouble();
+            this.uses[i] = in.readInt();
+            this.proposed[i] = in.readLong();
+            this.accepted[i] = in.readLong();
+        }
+        this.proposals = in.readInt();
+    }
+
+    // Returns the number of operators
+    public int size() {
+        return this.operators.length;
+    }
+
+    // Returns the current weight of operator i
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    // Returns how many moves operator i proposed
+    public long getProposed(int i) {
+        return this.proposed[i];
+    }
+
+    // Returns how many moves of operator i were accepted
+    public long getAccepted(int i) {
+        return this.accepted[i];
+    }
+}
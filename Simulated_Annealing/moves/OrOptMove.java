@@ -0,0 +1,110 @@
+package moves;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import Solutions.Solution;
+import java.util.random.RandomGenerator;
+
+/* Segment insertion: removes a segment of consecutive cities and inserts it, possibly
+ * reversed, between two other adjacent cities. With segments of up to 3 cities this is
+ * Or-opt; with segments of any length it is the or-3opt variant of 3-opt, which changes
+ * three edges without reversing the rest of the tour.
+ *
+ * The delta is computed in constant time. The move is applied as two or three 2-opt
+ * flips:
+ *   p [s1..s2] nx ... c d   ->   p c ... nx [s2..s1] d   (flip p,s1,c,d)
+ *                           ->   p nx ... c [s2..s1] d   (flip p,c,nx,s2)
+ *                           ->   p nx ... c [s1..s2] d   (flip c,s2,s1,d, only if not reversed)
+ */
+public class OrOptMove implements MoveOperator {
+
+    // Proposals that hit an invalid insertion point are retried this many times
+    private static final int MAX_TRIES = 8;
+
+    private final CandidateLists candidates;
+    private final int maxLength;
+    private final String name;
+
+    // Last proposed move: segment s1..s2 between p and nx, inserted between c and d
+    private int p, s1, s2, nx, c, d;
+    private boolean reversed;
+    private boolean valid;
+
+    // Cities the proposals start from (null = any city)
+    private int[] focus;
+
+    public OrOptMove(CandidateLists candidates, int maxLength, String name) {
+        if (maxLength < 1) throw new IllegalArgumentException("Segments must have at least 1 city");
+        this.candidates = candidates;
+        this.maxLength = maxLength;
+        this.name = name;
+    }
+
+    @Override
+    public int propose(Solution s, Distances m, RandomGenerator rng) {
+        int n = s.size();
+        this.valid = false;
+        if (n < 5) return 0;
+
+        for (int t = 0; t < MAX_TRIES; t++) {
+            // Segment starting at a random city: short segments are walked city by city, segments
+            // of any length end at a second random city
+            this.s1 = this.focus == null ? rng.nextInt(n) : this.focus[rng.nextInt(this.focus.length)];
+            if (this.maxLength < n - 4) {
+                int L = 1 + rng.nextInt(this.maxLength);
+                this.s2 = this.s1;
+                for (int k = 1; k < L; k++) this.s2 = s.next(this.s2);
+            } else {
+                this.s2 = rng.nextInt(n);
+            }
+            this.p = s.prev(this.s1);
+            this.nx = s.next(this.s2);
+
+            // Insertion edge (c, d): next to a nearest neighbor of an end of the segment, or random
+            int target;
+            if (this.candidates == null) {
+                target = rng.nextInt(n);
+            } else {
+                int end = rng.nextBoolean() ? this.s1 : this.s2;
+                target = this.candidates.get(end, rng.nextInt(this.candidates.size()));
+            }
+            if (rng.nextBoolean()) {
+                this.c = target;
+                this.d = s.next(target);
+            } else {
+                this.c = s.prev(target);
+                this.d = target;
+            }
+
+            // c and d must lie outside the segment, and (c, d) must not touch p from the left
+            if (s.between(this.s1, this.c, this.s2) || this.c == this.p || this.d == this.p) continue;
+
+            int removed = m.distance(this.p, this.s1) + m.distance(this.s2, this.nx) + m.distance(this.c, this.d);
+            int forward = m.distance(this.c, this.s1) + m.distance(this.s2, this.d);
+            int backward = m.distance(this.c, this.s2) + m.distance(this.s1, this.d);
+            this.reversed = this.s1 == this.s2 || backward < forward; // a single city needs no third flip
+            this.valid = true;
+            return m.distance(this.p, this.nx) + Math.min(forward, backward) - removed;
+        }
+        return 0;
+    }
+
+    @Override
+    public void apply(Solution s, int delta) {
+        if (!this.valid) return;
+        s.flip(this.p, this.s1, this.c, this.d);
+        if (this.c != this.nx) s.flip(this.p, this.c, this.nx, this.s2);
+        if (!this.reversed) s.flip(this.c, this.s2, this.s1, this.d);
+        s.setCost(s.getCost() + delta);
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void setFocus(int[] cities) {
+        this.focus = cities;
+    }
+}
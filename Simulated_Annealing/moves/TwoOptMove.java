@@ -0,0 +1,64 @@
+package moves;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import Solutions.Solution;
+import java.util.random.RandomGenerator;
+
+// 2-opt: removes two edges and reconnects the tour by reversing the segment between them
+public class TwoOptMove implements MoveOperator {
+
+    private final CandidateLists candidates;
+
+    // Edges (a,b) and (c,d) of the last proposed move
+    private int a, b, c, d;
+
+    // Cities the proposals start from (null = any city)
+    private int[] focus;
+
+    public TwoOptMove(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public int propose(Solution s, Distances m, RandomGenerator rng) {
+        int n = s.size();
+
+        this.a = this.focus == null ? rng.nextInt(n) : this.focus[rng.nextInt(this.focus.length)];
+        if (this.candidates == null) {
+            // Pick a second random city and remove the edges that leave both of them
+            this.c = (this.a + 1 + rng.nextInt(n - 1)) % n;
+            this.b = s.next(this.a);
+            this.d = s.next(this.c);
+        } else {
+            // Pick one of the nearest neighbors c of a, and propose the 2-opt move that creates
+            // the edge (a, c) together with the edge between their successors or, half of the
+            // time, their predecessors
+            this.c = this.candidates.get(this.a, rng.nextInt(this.candidates.size()));
+            boolean forward = rng.nextBoolean();
+            this.b = forward ? s.next(this.a) : s.prev(this.a);
+            this.d = forward ? s.next(this.c) : s.prev(this.c);
+        }
+
+        // delta = (new edges) - (old edges); it is 0 when the edges are adjacent
+        return m.distance(this.a, this.c) + m.distance(this.b, this.d)
+                - m.distance(this.a, this.b) - m.distance(this.c, this.d);
+    }
+
+    // Replaces (a,b) and (c,d) with (a,c) and (b,d), reversing the path between them
+    @Override
+    public void apply(Solution s, int delta) {
+        s.flip(this.a, this.b, this.c, this.d);
+        s.setCost(s.getCost() + delta);
+    }
+
+    @Override
+    public String getName() {
+        return "2opt";
+    }
+
+    @Override
+    public void setFocus(int[] cities) {
+        this.focus = cities;
+    }
+}
@@ -0,0 +1,110 @@
+package SA;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.Distances;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// A seeded run resumed from any of its checkpoints must end exactly as the uninterrupted run:
+// same best tour, cost, move counts and stop reason
+class CheckpointResumeTest {
+
+    private static final int CITIES = 300;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"array", "twolevel"})
+    void resumedRunEndsLikeTheUninterruptedOne(String representation) throws IOException {
+        Distances m = randomInstance(CITIES, 1);
+        CandidateLists candidates = CandidateLists.build(m, 8);
+        String file = this.dir.resolve("run.ckpt").toString();
+
+        AnnealingResult plain = annealer(m, candidates, representation).run();
+        SimulatedAnnealing checkpointed = annealer(m, candidates, representation);
+        checkpointed.setCheckpoint(file, 0);
+        AnnealingResult withCheckpoints = checkpointed.run();
+        assertTrue(Files.exists(this.dir.resolve("run.ckpt")), "no checkpoint was written");
+        assertTrue(AnnealingCheckpoint.read(file).iteration < plain.getIterations(), "the checkpoint is not from the middle of the run");
+        AnnealingResult resumed = annealer(m, candidates, representation).resume(file);
+
+        assertSameRun(plain, withCheckpoints);
+        assertSameRun(plain, resumed);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"array", "twolevel"})
+    void resumedReoptimizationEndsLikeTheUninterruptedOne(String representation) throws IOException {
+        Distances before = randomInstance(CITIES, 2);
+        SimulatedAnnealing first = annealer(before, CandidateLists.build(before, 8), representation);
+        List<String> previous = first.run().getBest().getPath(before);
+
+        // The same cities but the first five
+        Distances after = randomInstance(CITIES, 2, 5);
+        CandidateLists candidates = CandidateLists.build(after, 8);
+        String file = this.dir.resolve("reopt.ckpt").toString();
+
+        AnnealingResult plain = annealer(after, candidates, representation).reoptimize(previous);
+        SimulatedAnnealing checkpointed = annealer(after, candidates, representation);
+        checkpointed.setCheckpoint(file, 0);
+        checkpointed.reoptimize(previous);
+        assertTrue(AnnealingCheckpoint.read(file).iteration < plain.getIterations(), "the checkpoint is not from the middle of the run");
+        AnnealingResult resumed = annealer(after, candidates, representation).resume(file);
+
+        assertSameRun(plain, resumed);
+    }
+
+    // Private: a seeded annealer with adaptive composite moves, so the checkpoint must restore
+    // the random generator, the operator weights and the tour representation
+    private static SimulatedAnnealing annealer(Distances m, CandidateLists candidates, String representation) {
+        SimulatedAnnealing sa = new SimulatedAnnealing(m, 42L);
+        sa.setVerbose(false);
+        sa.setIterVariationMethod("random");
+        sa.setCandidateLists(candidates);
+        sa.setMoveOperators("2opt:5,oropt:3,swap:1", true);
+        sa.setTourRepresentation(representation);
+        sa.setMaxIterations(400_000);
+        return sa;
+    }
+
+    // Private: checks that two runs ended in the same state
+    private static void assertSameRun(AnnealingResult expected, AnnealingResult actual) {
+        assertEquals(expected.getBestCost(), actual.getBestCost(), "best cost");
+        assertEquals(expected.getIterations(), actual.getIterations(), "iterations");
+        assertEquals(expected.getAcceptedMoves(), actual.getAcceptedMoves(), "accepted moves");
+        assertEquals(expected.getStopReason(), actual.getStopReason(), "stop reason");
+        assertArrayEquals(expected.getBest().toArray(), actual.getBest().toArray(), "best tour");
+    }
+
+    // Private: n random cities in a 10000 x 10000 square, without the first skip ones
+    private static Distances randomInstance(int n, long seed, int skip) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        String[] names = new String[n - skip];
+        double[] x = new double[n - skip], y = new double[n - skip];
+        for (int i = 0; i < n; i++) {
+            double cx = rng.nextDouble(10_000.0), cy = rng.nextDouble(10_000.0);
+            if (i < skip) continue;
+            names[i - skip] = "c" + i;
+            x[i - skip] = cx;
+            y[i - skip] = cy;
+        }
+        return new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D);
+    }
+
+    // Private: n random cities in a 10000 x 10000 square
+    private static Distances randomInstance(int n, long seed) {
+        return randomInstance(n, seed, 0);
+    }
+}
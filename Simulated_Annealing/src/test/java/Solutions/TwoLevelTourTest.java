@@ -0,0 +1,127 @@
+package Solutions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// The two-level list must describe the same cycle as the array tour after any sequence of flips
+// and swaps, answer next/prev/between consistently with its own order, and copy and checkpoint
+// its exact state
+class TwoLevelTourTest {
+
+    private static final int OPERATIONS = 30_000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 9, 64, 1000, 5000})
+    void followsTheArrayTour(int n) {
+        SplittableRandom rng = new SplittableRandom(n);
+        int[] order = randomOrder(n, rng);
+        ArrayTour array = new ArrayTour(order);
+        TwoLevelTour list = new TwoLevelTour(order);
+        int check = Math.max(1, n / 50);
+        for (int i = 0; i < OPERATIONS; i++) {
+            int a = rng.nextInt(n);
+            int c = rng.nextInt(n);
+            if (rng.nextInt(10) == 0) {
+                array.swap(a, c);
+                list.swap(a, c);
+            } else {
+                // The same edges for both: the list may travel the cycle the other way, and flip()
+                // accepts the edges in either direction
+                boolean forward = rng.nextBoolean();
+                int b = forward ? array.next(a) : array.prev(a), d = forward ? array.next(c) : array.prev(c);
+                array.flip(a, b, c, d);
+                list.flip(a, b, c, d);
+            }
+            if (i % check == 0) assertSameCycle(array, list, i);
+        }
+        assertSameCycle(array, list, OPERATIONS);
+        assertBetweenFollowsOrder(list, rng);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {9, 1000})
+    void copiesAndCheckpointsBehaveIdentically(int n) throws IOException {
+        SplittableRandom rng = new SplittableRandom(n);
+        TwoLevelTour list = new TwoLevelTour(randomOrder(n, rng));
+        for (int i = 0; i < 1000; i++) flip(list, rng);
+        Tour copy = list.copy();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.write(new DataOutputStream(bytes));
+        Tour read = Tour.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // The same flips leave all of them in the same order, direction included
+        for (int i = 0; i < 1000; i++) {
+            long seed = rng.nextLong();
+            flip(list, new SplittableRandom(seed));
+            flip(copy, new SplittableRandom(seed));
+            flip(read, new SplittableRandom(seed));
+        }
+        int[] expected = toArray(list);
+        assertArrayEquals(expected, toArray(copy));
+        assertArrayEquals(expected, toArray(read));
+    }
+
+    // Private: a random forward 2-opt flip
+    private static void flip(Tour t, SplittableRandom rng) {
+        int a = rng.nextInt(t.size()), c = rng.nextInt(t.size());
+        t.flip(a, t.next(a), c, t.next(c));
+    }
+
+    // Private: checks that two tours have the same edges and that next and prev agree
+    private static void assertSameCycle(Tour expected, Tour actual, int step) {
+        int n = expected.size();
+        for (int c = 0; c < n; c++) {
+            int en = expected.next(c), ep = expected.prev(c);
+            int an = actual.next(c), ap = actual.prev(c);
+            assertTrue((an == en && ap == ep) || (an == ep && ap == en), "different neighbors of " + c + " after " + step + " operations");
+            assertEquals(c, actual.prev(an), "prev(next(" + c + ")) after " + step + " operations");
+        }
+        int[] order = toArray(actual);
+        for (int i = 0; i < n; i++) {
+            assertEquals(order[(i + 1) % n], actual.next(order[i]), "toArray and next disagree after " + step + " operations");
+        }
+    }
+
+    // Private: checks between() against the positions of the cities in the tour order
+    private static void assertBetweenFollowsOrder(Tour t, SplittableRandom rng) {
+        int n = t.size();
+        int[] order = toArray(t);
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) position[order[i]] = i;
+        for (int i = 0; i < 10_000; i++) {
+            int a = rng.nextInt(n), b = rng.nextInt(n), c = rng.nextInt(n);
+            int ab = Math.floorMod(position[b] - position[a], n), ac = Math.floorMod(position[c] - position[a], n);
+            assertEquals(ab <= ac, t.between(a, b, c), "between(" + a + ", " + b + ", " + c + ")");
+        }
+    }
+
+    // Private: the cities of a tour in its order
+    private static int[] toArray(Tour t) {
+        int[] order = new int[t.size()];
+        t.toArray(order);
+        return order;
+    }
+
+    // Private: a random order of the cities 0..n-1
+    private static int[] randomOrder(int n, SplittableRandom rng) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int r = rng.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[r];
+            order[r] = t;
+        }
+        return order;
+    }
+}
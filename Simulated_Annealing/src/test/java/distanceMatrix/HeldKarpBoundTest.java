@@ -0,0 +1,97 @@
+package distanceMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/* The Held-Karp bound must never exceed the optimum: checked against the exact optimum of small
+ * instances (dynamic programming over subsets), metric or not, and against a tour on an instance
+ * large enough for the candidate graph. */
+class HeldKarpBoundTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 5, 8, 11})
+    void boundIsAtMostTheOptimumOfCoordinateInstances(int n) {
+        for (long seed = 0; seed < 20; seed++) {
+            SplittableRandom rng = new SplittableRandom(seed * 100 + n);
+            String[] names = new String[n];
+            double[] x = new double[n], y = new double[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = "c" + i;
+                x[i] = rng.nextDouble(1000.0);
+                y[i] = rng.nextDouble(1000.0);
+            }
+            assertBoundBelowOptimum(new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 5, 8, 11})
+    void boundIsAtMostTheOptimumOfNonMetricMatrices(int n) {
+        for (long seed = 0; seed < 20; seed++) {
+            SplittableRandom rng = new SplittableRandom(seed * 100 + n);
+            ArrayList<String> cities = new ArrayList<>();
+            for (int i = 0; i < n; i++) cities.add("c" + i);
+            int[] packed = new int[n * (n - 1) / 2];
+            for (int k = 0; k < packed.length; k++) packed[k] = 1 + rng.nextInt(1000);
+            assertBoundBelowOptimum(new DistanceMatrix(cities, packed));
+        }
+    }
+
+    @Test
+    void sparseBoundIsProvenAndBelowATour() {
+        int n = 1200;
+        SplittableRandom rng = new SplittableRandom(n);
+        String[] names = new String[n];
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "c" + i;
+            x[i] = rng.nextDouble(10_000.0);
+            y[i] = rng.nextDouble(10_000.0);
+        }
+        CoordinateInstance m = new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D);
+        HeldKarpBound hk = HeldKarpBound.of(m);
+        assertTrue(hk.isExact(), "the bound of " + n + " cities must be proven");
+        assertTrue(hk.getBound() > 0);
+        assertTrue(hk.getBound() <= hk.getUpperBound(), "bound " + hk.getBound() + " above the tour " + hk.getUpperBound());
+    }
+
+    /* Private: checks the bound of an instance against its optimum. */
+    private static void assertBoundBelowOptimum(Distances m) {
+        HeldKarpBound hk = HeldKarpBound.of(m);
+        long optimum = optimum(m);
+        assertTrue(hk.isExact());
+        assertTrue(hk.getBound() <= optimum, "bound " + hk.getBound() + " above the optimum " + optimum);
+        if (hk.isOptimal()) assertEquals(optimum, hk.getBound(), "the 1-tree was a tour but not an optimal one");
+    }
+
+    /* Private: length of the shortest tour, by dynamic programming over the subsets of cities
+     * (Held-Karp, O(2^n n^2)). best[S][j]: shortest path from city 0 through the cities of S
+     * ending at j, S a subset of the cities 1..n-1. */
+    private static long optimum(Distances m) {
+        int n = m.size();
+        int k = n - 1, subsets = 1 << k;
+        long[][] best = new long[subsets][k];
+        for (long[] row : best) Arrays.fill(row, Long.MAX_VALUE);
+        for (int j = 0; j < k; j++) best[1 << j][j] = m.distance(0, j + 1);
+        for (int s = 1; s < subsets; s++) {
+            for (int j = 0; j < k; j++) {
+                if ((s & (1 << j)) == 0 || best[s][j] == Long.MAX_VALUE) continue;
+                for (int next = 0; next < k; next++) {
+                    if ((s & (1 << next)) != 0) continue;
+                    int t = s | (1 << next);
+                    best[t][next] = Math.min(best[t][next], best[s][j] + m.distance(j + 1, next + 1));
+                }
+            }
+        }
+        long optimum = Long.MAX_VALUE;
+        for (int j = 0; j < k; j++) optimum = Math.min(optimum, best[subsets - 1][j] + m.distance(j + 1, 0));
+        return optimum;
+    }
+}
@@ -0,0 +1,86 @@
+package moves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Solutions.ArrayTour;
+import Solutions.Solution;
+import Solutions.Tour;
+import Solutions.TwoLevelTour;
+import distanceMatrix.CandidateLists;
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.Distances;
+import java.util.SplittableRandom;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+// The constant-time delta of every move operator must be the exact change of the tour length,
+// whatever the tour representation, with and without candidate lists and on small tours
+class MoveDeltaTest {
+
+    private static final int MOVES = 20_000;
+
+    @ParameterizedTest
+    @CsvSource({
+            "2opt, array, 0", "2opt, twolevel, 0", "2opt, array, 5", "2opt, twolevel, 5",
+            "oropt, array, 0", "oropt, twolevel, 0", "oropt, array, 5", "oropt, twolevel, 5",
+            "or3opt, array, 0", "or3opt, twolevel, 0", "or3opt, array, 5", "or3opt, twolevel, 5",
+            "swap, array, 0", "swap, twolevel, 0", "swap, array, 5", "swap, twolevel, 5"})
+    void deltaIsTheChangeOfTheTourLength(String operator, String representation, int k) {
+        for (int n : new int[]{5, 6, 8, 13, 200}) {
+            Distances m = randomInstance(n, 7 * n + k);
+            MoveOperator move = OperatorSelector.create(operator, k > 0 ? CandidateLists.build(m, k) : null);
+            SplittableRandom rng = new SplittableRandom(n);
+            Solution s = new Solution(tour(representation, randomOrder(n, rng)));
+            s.evaluate(m);
+            for (int i = 0; i < MOVES; i++) {
+                int delta = move.propose(s, m, rng);
+                move.apply(s, delta);
+                int tracked = s.getCost();
+                s.evaluate(m);
+                assertEquals(s.getCost(), tracked, operator + " move " + i + " on " + n + " cities");
+                assertPermutation(s.toArray());
+            }
+        }
+    }
+
+    // Private: n random cities in a 1000 x 1000 square
+    private static Distances randomInstance(int n, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        String[] names = new String[n];
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = Integer.toString(i);
+            x[i] = rng.nextDouble(1000.0);
+            y[i] = rng.nextDouble(1000.0);
+        }
+        return new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D);
+    }
+
+    // Private: a random order of the cities 0..n-1
+    private static int[] randomOrder(int n, SplittableRandom rng) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int r = rng.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[r];
+            order[r] = t;
+        }
+        return order;
+    }
+
+    // Private: a tour of the given representation
+    private static Tour tour(String representation, int[] order) {
+        return representation.equals("twolevel") ? new TwoLevelTour(order) : new ArrayTour(order);
+    }
+
+    // Private: checks that a tour visits every city once
+    private static void assertPermutation(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int c : order) {
+            assertTrue(c >= 0 && c < order.length && !seen[c], "not a permutation of the cities");
+            seen[c] = true;
+        }
+    }
+}
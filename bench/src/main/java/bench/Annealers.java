@@ -0,0 +1,33 @@
+package bench;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import SA.SimulatedAnnealing;
+
+/* Annealer configuration shared by the run benchmarks: the automatic parameters of
+ * SimulatedAnnealing with geometric cooling, 2-opt moves and, beyond the small examples,
+ * candidate lists of the 8 nearest neighbors.
+ */
+final class Annealers {
+
+    static final int CANDIDATES = 8;
+    static final int MIN_CITIES_FOR_CANDIDATES = 50;
+
+    private Annealers() {
+    }
+
+    // Builds the candidate lists used for the instance, or null for the small examples
+    static CandidateLists candidates(Distances matrix) {
+        return matrix.size() < MIN_CITIES_FOR_CANDIDATES ? null : CandidateLists.build(matrix, CANDIDATES);
+    }
+
+    // Creates a silent annealer with the benchmark configuration
+    static SimulatedAnnealing create(Distances matrix, CandidateLists candidates, long seed) {
+        SimulatedAnnealing sa = new SimulatedAnnealing(matrix, seed);
+        sa.setVerbose(false);
+        sa.setTemperatureDecayMethod("geometric");
+        sa.setIterVariationMethod("constant");
+        sa.setCandidateLists(candidates);
+        return sa;
+    }
+}
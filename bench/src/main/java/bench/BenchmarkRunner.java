@@ -0,0 +1,31 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* Runs the benchmarks whose names match the arguments (all of them without arguments) with
+ * the GC profiler, which adds the allocation rate and allocated bytes per operation to every
+ * result. Results are also written to jmh-result.json.
+ *
+ *   java -jar bench/target/benchmarks.jar [regexp...]
+ *
+ * For the full JMH command line use: java -cp bench/target/benchmarks.jar org.openjdk.jmh.Main
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        for (String pattern : args) builder.include(pattern);
+        if (args.length == 0) builder.include("bench\\..*");
+        Options options = builder
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
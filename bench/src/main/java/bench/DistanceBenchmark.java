@@ -0,0 +1,47 @@
+package bench;
+
+import distanceMatrix.Distances;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Cost of one distance lookup: the full matrix file (array lookup) and random coordinate
+ * instances (computed on demand). The city pairs are drawn in advance, so the benchmark
+ * measures the lookup and not the random generator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    private static final int PAIRS = 1 << 16;
+
+    @Param({"full", "1000", "50000"})
+    public String instance;
+
+    private Distances matrix;
+    private int[] from;
+    private int[] to;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.matrix = Instances.get(this.instance);
+        Random rng = new Random(1);
+        this.from = new int[PAIRS];
+        this.to = new int[PAIRS];
+        for (int k = 0; k < PAIRS; k++) {
+            this.from[k] = rng.nextInt(this.matrix.size());
+            this.to[k] = rng.nextInt(this.matrix.size());
+        }
+    }
+
+    @Benchmark
+    public int distance() {
+        int k = this.next = (this.next + 1) & (PAIRS - 1);
+        return this.matrix.distance(this.from[k], this.to[k]);
+    }
+}
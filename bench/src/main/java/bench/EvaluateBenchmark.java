@@ -0,0 +1,40 @@
+package bench;
+
+import distanceMatrix.Distances;
+import Solutions.ArrayTour;
+import Solutions.Solution;
+import Solutions.TwoLevelTour;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Full evaluation of a tour, for both tour representations. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    @Param({"E1", "E2", "E3", "1000", "10000", "50000"})
+    public String instance;
+
+    @Param({"array", "twolevel"})
+    public String tour;
+
+    private Distances matrix;
+    private Solution solution;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.matrix = Instances.get(this.instance);
+        int[] order = Instances.randomTour(this.matrix.size());
+        this.solution = new Solution(this.tour.equals("array") ? new ArrayTour(order) : new TwoLevelTour(order));
+    }
+
+    @Benchmark
+    public int evaluate() {
+        this.solution.evaluate(this.matrix);
+        return this.solution.getCost();
+    }
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import distanceMatrix.CoordinateInstance;
+import distanceMatrix.DistanceMatrix;
+import distanceMatrix.Distances;
+import java.util.Arrays;
+import java.util.Random;
+
+/* Instances shared by the benchmarks: the E1/E2/E3 examples of Main, taken from the matrix
+ * file (system property bench.matrix, distancias.txt by default), and random uniform EUC_2D
+ * instances given by their number of cities. Random instances use a fixed seed, so every
+ * benchmark run sees the same cities.
+ */
+public final class Instances {
+
+    private static final long SEED = 12345L;
+
+    // Cities of the examples, as in Main
+    private static final String[] E1 = {"Atroeira", "Douro", "Pinhal", "Teixoso", "Ulgueira", "Vilar"};
+    private static final String[] E2 = {"Cerdeira", "Douro", "Gonta", "Infantado", "Lourel", "Nelas", "Oura",
+            "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"};
+    private static final String[] E3 = {"Belmar", "Cerdeira", "Douro", "Encosta", "Freita", "Gonta", "Horta",
+            "Infantado", "Lourel", "Monte", "Nelas", "Oura", "Pinhal", "Quebrada", "Roseiral", "Serra", "Teixoso", "Ulgueira"};
+
+    private Instances() {
+    }
+
+    // Returns the path of the matrix file
+    public static String matrixFile() {
+        return System.getProperty("bench.matrix", "distancias.txt");
+    }
+
+    // Returns an instance by name: "E1", "E2", "E3" (views over the matrix file, as in Main),
+    // "full" (the whole matrix file) or a number of random cities
+    public static Distances get(String name) {
+        switch (name) {
+            case "E1":
+                return new DistanceMatrix(matrixFile()).subset(Arrays.asList(E1));
+            case "E2":
+                return new DistanceMatrix(matrixFile()).subset(Arrays.asList(E2));
+            case "E3":
+                return new DistanceMatrix(matrixFile()).subset(Arrays.asList(E3));
+            case "full":
+                return new DistanceMatrix(matrixFile());
+            default:
+                return random(Integer.parseInt(name));
+        }
+    }
+
+    // Returns n cities placed uniformly at random in a 1,000,000 x 1,000,000 square
+    public static CoordinateInstance random(int n) {
+        Random rng = new Random(SEED + n);
+        String[] names = new String[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = Integer.toString(i + 1);
+            x[i] = rng.nextInt(1_000_000);
+            y[i] = rng.nextInt(1_000_000);
+        }
+        return new CoordinateInstance(names, x, y, CoordinateInstance.EdgeWeightType.EUC_2D);
+    }
+
+    // Returns a random tour over the cities of the instance (fixed seed)
+    public static int[] randomTour(int n) {
+        Random rng = new Random(SEED);
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) tour[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int r = rng.nextInt(i + 1);
+            int tmp = tour[i];
+            tour[i] = tour[r];
+            tour[r] = tmp;
+        }
+        return tour;
+    }
+}
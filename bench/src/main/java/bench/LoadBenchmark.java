@@ -0,0 +1,38 @@
+package bench;
+
+import distanceMatrix.DistanceMatrix;
+import distanceMatrix.DistanceMatrixLoader;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Time to load the matrix file, from the text format and from its binary conversion. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    private String binaryFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        File bin = File.createTempFile("matrix", ".bin");
+        bin.deleteOnExit();
+        this.binaryFile = bin.getPath();
+        DistanceMatrixLoader.writeBinary(DistanceMatrixLoader.readText(Instances.matrixFile()), this.binaryFile);
+    }
+
+    @Benchmark
+    public DistanceMatrix text() throws IOException {
+        return DistanceMatrixLoader.readText(Instances.matrixFile());
+    }
+
+    @Benchmark
+    public DistanceMatrix binary() throws IOException {
+        return DistanceMatrixLoader.readBinary(this.binaryFile);
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import moves.OperatorSelector;
+import SA.FastRandom;
+import Solutions.ArrayTour;
+import Solutions.Solution;
+import Solutions.TwoLevelTour;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Moves per second of the neighbor step of SimulatedAnnealing: pick an operator and propose a
+ * move with its delta (SimulatedAnnealing.neighbor does exactly this with its own selector).
+ * proposeAndApply also applies improving moves and one in twenty others, so the tour keeps
+ * changing as in a run at a moderate temperature.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborBenchmark {
+
+    @Param({"E3", "1000", "10000", "50000"})
+    public String instance;
+
+    @Param({"2opt", "oropt", "or3opt", "swap"})
+    public String operator;
+
+    @Param({"auto"})
+    public String tour;
+
+    private Distances matrix;
+    private Solution solution;
+    private OperatorSelector operators;
+    private FastRandom rng;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.matrix = Instances.get(this.instance);
+        CandidateLists candidates = Annealers.candidates(this.matrix);
+        int[] order = Instances.randomTour(this.matrix.size());
+        boolean twoLevel = this.tour.equals("twolevel") || (this.tour.equals("auto") && order.length >= 5000);
+        this.solution = new Solution(twoLevel ? new TwoLevelTour(order) : new ArrayTour(order));
+        this.solution.evaluate(this.matrix);
+        this.operators = OperatorSelector.parse(this.operator, candidates, false);
+        this.rng = new FastRandom(1);
+    }
+
+    @Benchmark
+    public int propose() {
+        int op = this.operators.select(this.rng);
+        return this.operators.get(op).propose(this.solution, this.matrix, this.rng);
+    }
+
+    @Benchmark
+    public int proposeAndApply() {
+        int op = this.operators.select(this.rng);
+        int delta = this.operators.get(op).propose(this.solution, this.matrix, this.rng);
+        if (delta <= 0 || this.rng.nextInt(20) == 0) this.operators.get(op).apply(this.solution, delta);
+        return delta;
+    }
+}
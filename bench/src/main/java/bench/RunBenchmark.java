@@ -0,0 +1,52 @@
+package bench;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import SA.AnnealingResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Full SimulatedAnnealing.run() with the automatic parameters, one run per measurement.
+ * Besides the run time, the counters report moves per second and the best cost found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RunBenchmark {
+
+    @Param({"E1", "E2", "E3", "1000", "5000", "20000", "50000"})
+    public String instance;
+
+    private Distances matrix;
+    private CandidateLists candidates;
+    private long seed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Moves {
+        public long moves; // reported as moves per second
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        public long bestCost; // one run per iteration, so this is the best cost of the run
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.matrix = Instances.get(this.instance);
+        this.candidates = Annealers.candidates(this.matrix);
+    }
+
+    @Benchmark
+    public AnnealingResult run(Moves moves, Cost cost) {
+        AnnealingResult result = Annealers.create(this.matrix, this.candidates, ++this.seed).run();
+        moves.moves += result.getTotalMoves();
+        cost.bestCost += result.getBestCost();
+        return result;
+    }
+}
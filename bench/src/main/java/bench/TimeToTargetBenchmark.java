@@ -0,0 +1,67 @@
+package bench;
+
+import distanceMatrix.CandidateLists;
+import distanceMatrix.Distances;
+import SA.AnnealingResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/* Time until a tour within gap percent of a reference cost is found, restarting the annealer
+ * with a new seed while the target is not reached. The reference is the best cost of a few
+ * calibration runs made before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TimeToTargetBenchmark {
+
+    private static final int CALIBRATION_RUNS = 5;
+    private static final int MAX_RUNS = 100;
+
+    @Param({"E1", "E2", "E3", "1000"})
+    public String instance;
+
+    @Param({"5"})
+    public double gap;
+
+    private Distances matrix;
+    private CandidateLists candidates;
+    private long target;
+    private long seed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Attempts {
+        public long runs;   // runs needed to reach the target
+        public long missed; // 1 if the target was not reached within MAX_RUNS runs
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.matrix = Instances.get(this.instance);
+        this.candidates = Annealers.candidates(this.matrix);
+        long reference = Long.MAX_VALUE;
+        for (int r = 0; r < CALIBRATION_RUNS; r++) {
+            reference = Math.min(reference, Annealers.create(this.matrix, this.candidates, -1 - r).run().getBestCost());
+        }
+        this.target = (long) Math.floor(reference * (1 + this.gap / 100.0));
+        System.out.println("\nReference cost: " + reference + " | Target cost: " + this.target);
+    }
+
+    @Benchmark
+    public long timeToTarget(Attempts attempts) {
+        for (int r = 1; r <= MAX_RUNS; r++) {
+            AnnealingResult result = Annealers.create(this.matrix, this.candidates, ++this.seed).run();
+            if (result.getBestCost() <= this.target) {
+                attempts.runs += r;
+                return result.getBestCost();
+            }
+        }
+        attempts.runs += MAX_RUNS;
+        attempts.missed++;
+        return -1;
+    }
+}